@@ -1,6 +1,7 @@
 package com.kidtask;
 
 import com.kidtask.models.User;
+import com.kidtask.utils.AsyncDataManager;
 import com.kidtask.utils.DataManager;
 import com.kidtask.views.*;
 import javafx.application.Application;
@@ -85,7 +86,7 @@ public class KidTaskApplication extends Application {
                 KidDashboardView kidView = new KidDashboardView(user);
                 kidView.setOnLogout(() -> {
                     currentUser = null;
-                    dataManager.loadAllData(); // Reload data on logout
+                    AsyncDataManager.getInstance().refreshAsync(); // Refresh data on logout
                     showWelcomePage();
                 });
                 rootPane.getChildren().clear();
@@ -96,7 +97,7 @@ public class KidTaskApplication extends Application {
                 ParentDashboardView parentView = new ParentDashboardView(user);
                 parentView.setOnLogout(() -> {
                     currentUser = null;
-                    dataManager.loadAllData(); // Reload data on logout
+                    AsyncDataManager.getInstance().refreshAsync(); // Refresh data on logout
                     showWelcomePage();
                 });
                 rootPane.getChildren().clear();
@@ -107,7 +108,7 @@ public class KidTaskApplication extends Application {
                 TeacherDashboardView teacherView = new TeacherDashboardView(user);
                 teacherView.setOnLogout(() -> {
                     currentUser = null;
-                    dataManager.loadAllData(); // Reload data on logout
+                    AsyncDataManager.getInstance().refreshAsync(); // Refresh data on logout
                     showWelcomePage();
                 });
                 rootPane.getChildren().clear();
@@ -116,6 +117,16 @@ public class KidTaskApplication extends Application {
         }
     }
 
+    @Override
+    public void stop() {
+        // Bir sonraki açılış metin dosyalarını parse etmeden snapshot'tan yüklensin
+        if (dataManager != null) {
+            // Arka planda süren kayıtlar bitsin
+            AsyncDataManager.getInstance().shutdown();
+            dataManager.shutdown();
+        }
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
@@ -1,6 +1,8 @@
 package com.kidtask.models;
 
 import com.kidtask.models.User.Role;
+import com.kidtask.utils.RecordReader;
+import com.kidtask.utils.RecordWriter;
 
 public class Achievement {
     private int id;
@@ -58,26 +60,40 @@ public class Achievement {
         this.creatorRole = creatorRole;
     }
 
+    public Achievement copy() {
+        return new Achievement(id, title, description, reward, creatorRole);
+    }
+
     // Convert to file format
     public String toFileString() {
-        return id + ";" + title + ";" + description + ";" + reward + ";" + creatorRole.name();
+        RecordWriter out = RecordWriter.local();
+        write(out);
+        return out.toString();
+    }
+
+    public void write(RecordWriter out) {
+        out.writeInt(id)
+                .writeString(title)
+                .writeString(description)
+                .writeString(reward)
+                .writeEnum(creatorRole);
     }
 
     // Create from file string
     public static Achievement fromFileString(String line) {
-        String[] parts = line.split(";");
-        if (parts.length != 5) {
-            throw new IllegalArgumentException("Invalid achievement format: " + line);
+        return read(new RecordReader(line));
+    }
+
+    public static Achievement read(RecordReader in) {
+        if (in.fieldCount() != 5) {
+            throw new IllegalArgumentException("Invalid achievement format: " + in);
         }
         return new Achievement(
-            Integer.parseInt(parts[0]),
-            parts[1],
-            parts[2],
-            parts[3],
-            Role.valueOf(parts[4])
+            in.nextInt(),
+            in.nextString(),
+            in.nextString(),
+            in.nextString(),
+            in.nextEnum(User.ROLES)
         );
     }
 }
-
-
-
@@ -1,7 +1,10 @@
 package com.kidtask.models;
 
+import com.kidtask.utils.RecordReader;
+import com.kidtask.utils.RecordWriter;
+import com.kidtask.utils.SymbolTable;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import java.util.function.IntFunction;
 
 public class Task {
     private int id;
@@ -10,10 +13,13 @@ public class Task {
     private int points;
     private TaskStatus status;
     private TaskType type;
-    private String assignee;
-    private String creator; // Task'ı veren kişi (username)
+    // Kullanıcılar SymbolTable.users() id'si olarak tutulur; getter'lar isim döndürür
+    private int assigneeId;
+    private int creatorId; // Task'ı veren kişi
     private int rating; // 0-5
     private LocalDate dueDate;
+    // Şablondan verilen görevlerde başlık, açıklama, puan, tür, veren ve tarih şablonda durur
+    private TaskTemplate template;
 
     public enum TaskStatus {
         ASSIGNED, PENDING_APPROVAL, COMPLETED, FINALIZED, REJECTED
@@ -23,6 +29,10 @@ public class Task {
         SCHOOL, HOME
     }
 
+    // values() her çağrıda yeni dizi döndürür, parse için bir kez al
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+    private static final TaskType[] TYPES = TaskType.values();
+
     public Task(int id, String title, String description, int points, TaskStatus status, 
                 TaskType type, String assignee, String creator, int rating, LocalDate dueDate) {
         this.id = id;
@@ -31,12 +41,27 @@ public class Task {
         this.points = points;
         this.status = status;
         this.type = type;
-        this.assignee = assignee;
-        this.creator = creator;
+        this.assigneeId = SymbolTable.users().intern(assignee);
+        this.creatorId = SymbolTable.users().intern(creator);
         this.rating = rating;
         this.dueDate = dueDate;
     }
 
+    // One kid's assignment of a shared template: only assignee, status and rating are its own
+    public Task(int id, TaskTemplate template, TaskStatus status, String assignee, int rating) {
+        this.id = id;
+        this.template = template;
+        this.status = status;
+        this.assigneeId = SymbolTable.users().intern(assignee);
+        this.rating = rating;
+    }
+
+    // For subclasses that keep the values elsewhere (TaskTable row views) and override
+    // every getter/setter plus getTemplate/detachTemplate (the user name accessors go
+    // through the id ones)
+    protected Task() {
+    }
+
     // Getters and Setters
     public int getId() {
         return id;
@@ -47,26 +72,29 @@ public class Task {
     }
 
     public String getTitle() {
-        return title;
+        return template != null ? template.getTitle() : title;
     }
 
     public void setTitle(String title) {
+        detachTemplate();
         this.title = title;
     }
 
     public String getDescription() {
-        return description;
+        return template != null ? template.getDescription() : description;
     }
 
     public void setDescription(String description) {
+        detachTemplate();
         this.description = description;
     }
 
     public int getPoints() {
-        return points;
+        return template != null ? template.getPoints() : points;
     }
 
     public void setPoints(int points) {
+        detachTemplate();
         this.points = points;
     }
 
@@ -79,27 +107,45 @@ public class Task {
     }
 
     public TaskType getType() {
-        return type;
+        return template != null ? template.getType() : type;
     }
 
     public void setType(TaskType type) {
+        detachTemplate();
         this.type = type;
     }
 
     public String getAssignee() {
-        return assignee;
+        return SymbolTable.users().name(getAssigneeId());
     }
 
     public void setAssignee(String assignee) {
-        this.assignee = assignee;
+        setAssigneeId(SymbolTable.users().intern(assignee));
+    }
+
+    public int getAssigneeId() {
+        return assigneeId;
+    }
+
+    public void setAssigneeId(int assigneeId) {
+        this.assigneeId = assigneeId;
     }
 
     public String getCreator() {
-        return creator;
+        return SymbolTable.users().name(getCreatorId());
     }
 
     public void setCreator(String creator) {
-        this.creator = creator;
+        setCreatorId(SymbolTable.users().intern(creator));
+    }
+
+    public int getCreatorId() {
+        return template != null ? template.getCreatorId() : creatorId;
+    }
+
+    public void setCreatorId(int creatorId) {
+        detachTemplate();
+        this.creatorId = creatorId;
     }
 
     public int getRating() {
@@ -111,64 +157,118 @@ public class Task {
     }
 
     public LocalDate getDueDate() {
-        return dueDate;
+        return template != null ? template.getDueDate() : dueDate;
     }
 
     public void setDueDate(LocalDate dueDate) {
+        detachTemplate();
         this.dueDate = dueDate;
     }
 
+    // Shared content of this task, or null if the task carries its own copy
+    public TaskTemplate getTemplate() {
+        return template;
+    }
+
+    public int getTemplateId() {
+        TaskTemplate template = getTemplate();
+        return template == null ? 0 : template.getId();
+    }
+
+    // Changing a shared field makes the task a standalone copy: the template (and the
+    // other kids' tasks) stay as they were
+    protected void detachTemplate() {
+        if (template == null) {
+            return;
+        }
+        TaskTemplate shared = template;
+        template = null;
+        title = shared.getTitle();
+        description = shared.getDescription();
+        points = shared.getPoints();
+        type = shared.getType();
+        creatorId = shared.getCreatorId();
+        dueDate = shared.getDueDate();
+    }
+
+    // Independent Task with the same values (a templated task keeps its template)
+    public Task copy() {
+        if (getTemplate() != null) {
+            return new Task(getId(), getTemplate(), getStatus(), getAssignee(), getRating());
+        }
+        return new Task(getId(), getTitle(), getDescription(), getPoints(), getStatus(), getType(),
+                getAssignee(), getCreator(), getRating(), getDueDate());
+    }
+
     // Convert to file format
     public String toFileString() {
-        DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE;
-        return id + ";" + title + ";" + description + ";" + points + ";" + 
-               status.name() + ";" + type.name() + ";" + assignee + ";" + 
-               (creator != null ? creator : "") + ";" + rating + ";" + 
-               (dueDate != null ? dueDate.format(formatter) : "");
+        RecordWriter out = RecordWriter.local();
+        write(out);
+        return out.toString();
+    }
+
+    public void write(RecordWriter out) {
+        // Getter'lar üzerinden: TaskTable görünümleri de aynı şekilde yazılır
+        TaskTemplate template = getTemplate();
+        if (template != null) {
+            // Şablonlu satır (5 parça): id;şablon id;status;assignee;rating
+            out.writeInt(getId())
+                    .writeInt(template.getId())
+                    .writeEnum(getStatus())
+                    .writeString(getAssignee())
+                    .writeInt(getRating());
+            return;
+        }
+        out.writeInt(getId())
+                .writeString(getTitle())
+                .writeString(getDescription())
+                .writeInt(getPoints())
+                .writeEnum(getStatus())
+                .writeEnum(getType())
+                .writeString(getAssignee())
+                .writeString(getCreator())
+                .writeInt(getRating())
+                .writeDate(getDueDate());
     }
 
     // Create from file string
     public static Task fromFileString(String line) {
-        String[] parts = line.split(";");
-        DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE;
-        
+        return read(new RecordReader(line));
+    }
+
+    public static Task read(RecordReader in) {
+        return read(in, templateId -> null);
+    }
+
+    // templates resolves the template id of templated rows
+    public static Task read(RecordReader in, IntFunction<TaskTemplate> templates) {
+        int fieldCount = in.fieldCount();
+        if (fieldCount == 5) {
+            int id = in.nextInt();
+            int templateId = in.nextInt();
+            TaskTemplate template = templates.apply(templateId);
+            if (template == null) {
+                throw new IllegalArgumentException("Unknown task template " + templateId);
+            }
+            TaskStatus status = in.nextEnum(STATUSES);
+            String assignee = in.nextString();
+            return new Task(id, template, status, assignee, in.nextInt());
+        }
         // Backward compatibility: eski format (9 parça) veya yeni format (10 parça)
-        if (parts.length == 9) {
-            // Eski format - creator yok, type'dan çıkar
-            LocalDate date = parts[8].isEmpty() ? null : LocalDate.parse(parts[8], formatter);
-            String creator = ""; // Eski veriler için boş
-            return new Task(
-                Integer.parseInt(parts[0]),
-                parts[1],
-                parts[2],
-                Integer.parseInt(parts[3]),
-                TaskStatus.valueOf(parts[4]),
-                TaskType.valueOf(parts[5]),
-                parts[6],
-                creator,
-                Integer.parseInt(parts[7]),
-                date
-            );
-        } else if (parts.length == 10) {
-            // Yeni format - creator var
-            LocalDate date = parts[9].isEmpty() ? null : LocalDate.parse(parts[9], formatter);
-            return new Task(
-                Integer.parseInt(parts[0]),
-                parts[1],
-                parts[2],
-                Integer.parseInt(parts[3]),
-                TaskStatus.valueOf(parts[4]),
-                TaskType.valueOf(parts[5]),
-                parts[6],
-                parts[7],
-                Integer.parseInt(parts[8]),
-                date
-            );
-        } else {
-            throw new IllegalArgumentException("Invalid task format: " + line);
+        if (fieldCount != 9 && fieldCount != 10) {
+            throw new IllegalArgumentException("Invalid task format: " + in);
         }
+        int id = in.nextInt();
+        String title = in.nextString();
+        String description = in.nextString();
+        int points = in.nextInt();
+        TaskStatus status = in.nextEnum(STATUSES);
+        TaskType type = in.nextEnum(TYPES);
+        String assignee = in.nextString();
+        // Eski format - creator yok, eski veriler için boş
+        String creator = fieldCount == 10 ? in.nextString() : "";
+        int rating = in.nextInt();
+        LocalDate date = in.nextDate();
+        return new Task(id, title, description, points, status, type, assignee, creator, rating, date);
     }
 }
-
-
-
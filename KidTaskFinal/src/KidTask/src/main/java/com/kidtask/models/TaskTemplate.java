@@ -0,0 +1,98 @@
+package com.kidtask.models;
+
+import com.kidtask.utils.RecordReader;
+import com.kidtask.utils.RecordWriter;
+import com.kidtask.utils.SymbolTable;
+import java.time.LocalDate;
+
+// The shared part of a task given to several kids at once (one class homework):
+// title, description, points, type, creator and due date are stored here once and
+// each kid's Task only keeps assignee, status and rating (see Task.getTemplate()).
+// Immutable, so every assignment can point at the same instance.
+public final class TaskTemplate {
+    private final int id;
+    private final String title;
+    private final String description;
+    private final int points;
+    private final Task.TaskType type;
+    private final int creatorId; // SymbolTable.users() id
+    private final LocalDate dueDate;
+
+    private static final Task.TaskType[] TYPES = Task.TaskType.values();
+
+    public TaskTemplate(int id, String title, String description, int points, Task.TaskType type,
+                        String creator, LocalDate dueDate) {
+        this.id = id;
+        this.title = title;
+        this.description = description;
+        this.points = points;
+        this.type = type;
+        this.creatorId = SymbolTable.users().intern(creator);
+        this.dueDate = dueDate;
+    }
+
+    // Getters
+    public int getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public int getPoints() {
+        return points;
+    }
+
+    public Task.TaskType getType() {
+        return type;
+    }
+
+    public String getCreator() {
+        return SymbolTable.users().name(creatorId);
+    }
+
+    public int getCreatorId() {
+        return creatorId;
+    }
+
+    public LocalDate getDueDate() {
+        return dueDate;
+    }
+
+    // Convert to file format
+    public String toFileString() {
+        RecordWriter out = RecordWriter.local();
+        write(out);
+        return out.toString();
+    }
+
+    public void write(RecordWriter out) {
+        out.writeInt(id)
+                .writeString(title)
+                .writeString(description)
+                .writeInt(points)
+                .writeEnum(type)
+                .writeString(getCreator())
+                .writeDate(dueDate);
+    }
+
+    public static TaskTemplate read(RecordReader in) {
+        if (in.fieldCount() != 7) {
+            throw new IllegalArgumentException("Invalid template format: " + in);
+        }
+        return new TaskTemplate(
+            in.nextInt(),
+            in.nextString(),
+            in.nextString(),
+            in.nextInt(),
+            in.nextEnum(TYPES),
+            in.nextString(),
+            in.nextDate()
+        );
+    }
+}
@@ -1,5 +1,8 @@
 package com.kidtask.models;
 
+import com.kidtask.utils.RecordReader;
+import com.kidtask.utils.RecordWriter;
+
 public class User {
     private String username;
     private String password;
@@ -12,6 +15,8 @@ public class User {
         KID, PARENT, TEACHER
     }
 
+    static final Role[] ROLES = Role.values();
+
     public User(String username, String password, Role role, int level, int currentPoints, int totalExperience) {
         this.username = username;
         this.password = password;
@@ -70,27 +75,42 @@ public class User {
         this.totalExperience = totalExperience;
     }
 
+    public User copy() {
+        return new User(username, password, role, level, currentPoints, totalExperience);
+    }
+
     // Convert to file format
     public String toFileString() {
-        return username + ";" + password + ";" + role.name() + ";" + level + ";" + currentPoints + ";" + totalExperience;
+        RecordWriter out = RecordWriter.local();
+        write(out);
+        return out.toString();
+    }
+
+    public void write(RecordWriter out) {
+        out.writeString(username)
+                .writeString(password)
+                .writeEnum(role)
+                .writeInt(level)
+                .writeInt(currentPoints)
+                .writeInt(totalExperience);
     }
 
     // Create from file string
     public static User fromFileString(String line) {
-        String[] parts = line.split(";");
-        if (parts.length != 6) {
-            throw new IllegalArgumentException("Invalid user format: " + line);
+        return read(new RecordReader(line));
+    }
+
+    public static User read(RecordReader in) {
+        if (in.fieldCount() != 6) {
+            throw new IllegalArgumentException("Invalid user format: " + in);
         }
         return new User(
-            parts[0],
-            parts[1],
-            Role.valueOf(parts[2]),
-            Integer.parseInt(parts[3]),
-            Integer.parseInt(parts[4]),
-            Integer.parseInt(parts[5])
+            in.nextString(),
+            in.nextString(),
+            in.nextEnum(ROLES),
+            in.nextInt(),
+            in.nextInt(),
+            in.nextInt()
         );
     }
 }
-
-
-
@@ -1,22 +1,28 @@
 package com.kidtask.models;
 
+import com.kidtask.utils.RecordReader;
+import com.kidtask.utils.RecordWriter;
+import com.kidtask.utils.SymbolTable;
+
 public class Wish {
     private int id;
     private String title;
     private int cost;
     private WishStatus status;
-    private String owner;
+    private int ownerId; // SymbolTable.users() id
 
     public enum WishStatus {
         PENDING, APPROVED
     }
 
+    private static final WishStatus[] STATUSES = WishStatus.values();
+
     public Wish(int id, String title, int cost, WishStatus status, String owner) {
         this.id = id;
         this.title = title;
         this.cost = cost;
         this.status = status;
-        this.owner = owner;
+        this.ownerId = SymbolTable.users().intern(owner);
     }
 
     // Getters and Setters
@@ -53,33 +59,51 @@ public class Wish {
     }
 
     public String getOwner() {
-        return owner;
+        return SymbolTable.users().name(ownerId);
     }
 
     public void setOwner(String owner) {
-        this.owner = owner;
+        this.ownerId = SymbolTable.users().intern(owner);
+    }
+
+    public int getOwnerId() {
+        return ownerId;
+    }
+
+    public Wish copy() {
+        return new Wish(id, title, cost, status, getOwner());
     }
 
     // Convert to file format
     public String toFileString() {
-        return id + ";" + title + ";" + cost + ";" + status.name() + ";" + owner;
+        RecordWriter out = RecordWriter.local();
+        write(out);
+        return out.toString();
+    }
+
+    public void write(RecordWriter out) {
+        out.writeInt(id)
+                .writeString(title)
+                .writeInt(cost)
+                .writeEnum(status)
+                .writeString(getOwner());
     }
 
     // Create from file string
     public static Wish fromFileString(String line) {
-        String[] parts = line.split(";");
-        if (parts.length != 5) {
-            throw new IllegalArgumentException("Invalid wish format: " + line);
+        return read(new RecordReader(line));
+    }
+
+    public static Wish read(RecordReader in) {
+        if (in.fieldCount() != 5) {
+            throw new IllegalArgumentException("Invalid wish format: " + in);
         }
         return new Wish(
-            Integer.parseInt(parts[0]),
-            parts[1],
-            Integer.parseInt(parts[2]),
-            WishStatus.valueOf(parts[3]),
-            parts[4]
+            in.nextInt(),
+            in.nextString(),
+            in.nextInt(),
+            in.nextEnum(STATUSES),
+            in.nextString()
         );
     }
 }
-
-
-
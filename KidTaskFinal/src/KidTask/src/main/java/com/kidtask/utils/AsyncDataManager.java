@@ -0,0 +1,140 @@
+package com.kidtask.utils;
+
+import com.kidtask.models.Task;
+import com.kidtask.models.User;
+import javafx.application.Platform;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// DataManager calls for the screens, run on a small pool of I/O threads instead of the
+// JavaFX thread. A screen shows a placeholder right away and fills it in from
+// onFxThread(...) when the data arrives, so opening a screen does not wait for the
+// data files to be checked or read. The pool has -Dkidtask.ioThreads threads (default
+// 2) and an unbounded queue: a call is never run on the caller, which would put file I/O
+// back on the JavaFX thread. The screens queue at most a few calls per click.
+public class AsyncDataManager {
+    // Sonuçları JavaFX thread'inde işlemek için: future.thenAcceptAsync(..., FX_THREAD)
+    public static final Executor FX_THREAD = Platform::runLater;
+
+    private static AsyncDataManager instance;
+
+    private final DataManager data;
+    private final ThreadPoolExecutor executor;
+    // Aynı anda istenen yenilemeler tek bir refresh'i paylaşır
+    private CompletableFuture<Boolean> refreshing;
+
+    private AsyncDataManager(DataManager data) {
+        this.data = data;
+        int threads = Math.max(1, Integer.getInteger("kidtask.ioThreads", 2));
+        AtomicInteger count = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                task -> {
+                    Thread thread = new Thread(task, "kidtask-io-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    public static synchronized AsyncDataManager getInstance() {
+        if (instance == null) {
+            instance = new AsyncDataManager(DataManager.getInstance());
+        }
+        return instance;
+    }
+
+    // Any other DataManager read or save on the I/O threads
+    public <T> CompletableFuture<T> supplyAsync(Supplier<T> work) {
+        return CompletableFuture.supplyAsync(work, executor);
+    }
+
+    // Reads what changed in the data files (DataManager.refresh); true if anything did.
+    // A refresh requested while another one is still running gets that one's future.
+    public synchronized CompletableFuture<Boolean> refreshAsync() {
+        if (refreshing == null || refreshing.isDone()) {
+            refreshing = CompletableFuture.supplyAsync(data::refresh, executor);
+        }
+        return refreshing;
+    }
+
+    // Re-reads every data file (DataManager.loadAllData)
+    public CompletableFuture<Void> reloadAsync() {
+        return CompletableFuture.runAsync(data::loadAllData, executor);
+    }
+
+    public CompletableFuture<User> getUserAsync(String username) {
+        return supplyAsync(() -> data.getUserByUsername(username));
+    }
+
+    public CompletableFuture<List<Task>> queryAsync(TaskQuery query) {
+        return supplyAsync(() -> data.query(query));
+    }
+
+    // The kid's tasks in the given statuses, by id
+    public CompletableFuture<List<Task>> loadTasksForAssigneeAsync(String assignee, Task.TaskStatus first,
+                                                                   Task.TaskStatus... rest) {
+        return queryAsync(TaskQuery.tasks()
+                .assignee(assignee)
+                .status(first, rest)
+                .orderBy(Comparator.comparingInt(Task::getId)));
+    }
+
+    // Finished tasks of the kid (null = every kid) due between from and to, archived ones too
+    public CompletableFuture<List<Task>> getTaskHistoryAsync(String assignee, LocalDate from, LocalDate to) {
+        return supplyAsync(() -> data.getTaskHistory(assignee, from, to));
+    }
+
+    // The task is copied now: changing it after the call does not change what is saved
+    public CompletableFuture<Void> saveTaskAsync(Task task) {
+        Task saved = task.copy();
+        return CompletableFuture.runAsync(() -> data.saveTask(saved), executor);
+    }
+
+    public CompletableFuture<Void> saveUserAsync(User user) {
+        User saved = user.copy();
+        return CompletableFuture.runAsync(() -> data.saveUser(saved), executor);
+    }
+
+    public <T> CompletableFuture<T> runInTransactionAsync(Transaction.Work<T> work) {
+        return supplyAsync(() -> data.runInTransaction(work));
+    }
+
+    // Runs onResult on the JavaFX thread when the future completes; a failure is logged
+    public static <T> void onFxThread(CompletableFuture<T> future, Consumer<T> onResult) {
+        onFxThread(future, onResult, error -> { });
+    }
+
+    // Same, but a failure is also passed to onError on the JavaFX thread, so a screen that
+    // disabled a button for the call can turn it back on and show the error
+    public static <T> void onFxThread(CompletableFuture<T> future, Consumer<T> onResult,
+                                      Consumer<Throwable> onError) {
+        future.whenCompleteAsync((result, error) -> {
+            if (error != null) {
+                // thenCompose/supplyAsync hatayı CompletionException içine sarar
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                System.err.println("Error loading data: " + cause);
+                onError.accept(cause);
+            } else {
+                onResult.accept(result);
+            }
+        }, FX_THREAD);
+    }
+
+    // Waits for calls already submitted (saves in progress) before the app exits
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                System.err.println("Background data calls still running at exit");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.kidtask.utils;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Exclusive lock on the data directory, shared by every KidTask process that uses it: an
+// advisory FileChannel lock on data/KidTask.lock. It is held only for a commit window:
+// one write-behind batch, a sequence block reservation, a full rewrite or a catch-up
+// with other processes' changes, so two processes writing at once wait for each other
+// for at most one such window. Reentrant; threads of this process take it one at a time
+// (the file lock belongs to the whole JVM). -Dkidtask.fileLock=false keeps only the
+// in-process lock, for file systems without locking.
+public class DataDirectoryLock {
+    private final Path path;
+    private final boolean useFileLock = Boolean.parseBoolean(System.getProperty("kidtask.fileLock", "true"));
+    private final ReentrantLock local = new ReentrantLock();
+    private FileChannel channel;
+    private FileLock fileLock;
+    // Sadece kilit tutulurken değişir
+    private long acquired;
+    private long contended;
+    private long waitNanos;
+
+    public DataDirectoryLock(Path path) {
+        this.path = path;
+    }
+
+    public void lock() {
+        local.lock();
+        if (local.getHoldCount() > 1) {
+            return;
+        }
+        acquired++;
+        if (!useFileLock) {
+            return;
+        }
+        try {
+            if (channel == null) {
+                channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            }
+            fileLock = channel.tryLock();
+            if (fileLock == null) {
+                // Başka bir süreç commit ediyor; onun penceresi bitene kadar bekle
+                long start = System.nanoTime();
+                fileLock = channel.lock();
+                contended++;
+                waitNanos += System.nanoTime() - start;
+            }
+        } catch (IOException e) {
+            // Kilitsiz devam edilir: bu süreç yine yazar, sadece diğer süreçlerle sıralanmaz
+            System.err.println("Error locking data directory: " + e);
+            closeChannel();
+        }
+    }
+
+    public void unlock() {
+        if (local.getHoldCount() == 1 && fileLock != null) {
+            try {
+                fileLock.release();
+            } catch (IOException e) {
+                System.err.println("Error unlocking data directory: " + e);
+                closeChannel();
+            }
+            fileLock = null;
+        }
+        local.unlock();
+    }
+
+    public boolean isHeldByCurrentThread() {
+        return local.isHeldByCurrentThread();
+    }
+
+    private void closeChannel() {
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException ignored) {
+            // Kanal zaten kullanılamaz
+        }
+        channel = null;
+        fileLock = null;
+    }
+
+    @Override
+    public String toString() {
+        local.lock();
+        try {
+            return String.format("data directory: %d acquired, %d waited for another process, waited %d ms",
+                    acquired, contended, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+        } finally {
+            local.unlock();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.kidtask.utils;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Watches the data directory on a daemon thread ("kidtask-file-watcher") and collects
+// the names of files created, written or deleted since the last drainChanges(). Events
+// can be missed (network or synced folders), so DataManager.refresh() always compares
+// the file stamps and uses the events only where there is nothing to compare: Tasks.dat
+// on a file system without file keys. -Dkidtask.watchFiles=false turns it off.
+public class DataFileWatcher {
+    private final Set<String> changed = ConcurrentHashMap.newKeySet();
+    // İzleme çalışmıyorsa ya da olaylar kaçırıldıysa (OVERFLOW) her dosya değişmiş sayılır
+    private volatile boolean watching;
+    private volatile boolean overflowed;
+
+    public DataFileWatcher(Path directory) {
+        if (!Boolean.parseBoolean(System.getProperty("kidtask.watchFiles", "true"))) {
+            return;
+        }
+        try {
+            WatchService service = directory.getFileSystem().newWatchService();
+            directory.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+            watching = true;
+            Thread thread = new Thread(() -> watch(service), "kidtask-file-watcher");
+            thread.setDaemon(true);
+            thread.start();
+        } catch (IOException | UnsupportedOperationException e) {
+            System.err.println("Not watching data files: " + e.getMessage());
+        }
+    }
+
+    // Names of the files changed since the last call, or null if any file may have changed
+    public Set<String> drainChanges() {
+        if (!watching) {
+            return null;
+        }
+        if (overflowed) {
+            overflowed = false;
+            changed.clear();
+            return null;
+        }
+        Set<String> drained = new HashSet<>();
+        for (String name : changed) {
+            changed.remove(name);
+            drained.add(name);
+        }
+        return drained;
+    }
+
+    private void watch(WatchService service) {
+        while (true) {
+            WatchKey key;
+            try {
+                key = service.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                watching = false;
+                return;
+            }
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    overflowed = true;
+                } else {
+                    changed.add(event.context().toString());
+                }
+            }
+            if (!key.reset()) {
+                // Klasör silindi ya da erişilemiyor
+                watching = false;
+                return;
+            }
+        }
+    }
+}
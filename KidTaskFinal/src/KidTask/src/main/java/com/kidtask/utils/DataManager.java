@@ -3,25 +3,129 @@ package com.kidtask.utils;
 import com.kidtask.models.*;
 import java.io.*;
 import java.nio.file.*;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class DataManager {
     private static final String DATA_DIR = "data";
     private static final String USERS_FILE = DATA_DIR + File.separator + "Users.txt";
     private static final String TASKS_FILE = DATA_DIR + File.separator + "Tasks.txt";
+    private static final String TASKS_DAT_FILE = DATA_DIR + File.separator + "Tasks.dat";
+    private static final String TEMPLATES_FILE = DATA_DIR + File.separator + "Templates.txt";
     private static final String WISHES_FILE = DATA_DIR + File.separator + "Wishes.txt";
     private static final String ACHIEVEMENTS_FILE = DATA_DIR + File.separator + "Achievements.txt";
+    private static final String SEQUENCES_FILE = DATA_DIR + File.separator + "Sequences.txt";
+    private static final String SYMBOLS_FILE = DATA_DIR + File.separator + "Symbols.txt";
+    private static final String SNAPSHOT_FILE = DATA_DIR + File.separator + "Snapshot.bin";
+    private static final String ARCHIVE_FILE = DATA_DIR + File.separator + "Archive.dat";
+    private static final String ARCHIVE_INDEX_FILE = DATA_DIR + File.separator + "Archive.idx";
+    private static final String TRANSACTIONS_FILE = DATA_DIR + File.separator + "Transactions.log";
+    private static final String LOCK_FILE = DATA_DIR + File.separator + "KidTask.lock";
 
-    private List<User> users;
-    private List<Task> tasks;
-    private List<Wish> wishes;
-    private List<Achievement> achievements;
+    private static final String TASK_SEQUENCE = "tasks";
+    private static final String TEMPLATE_SEQUENCE = "templates";
+    private static final String WISH_SEQUENCE = "wishes";
+    private static final String ACHIEVEMENT_SEQUENCE = "achievements";
+
+    // Entity names in Transactions.log
+    private static final String USERS_ENTITY = "users";
+    private static final String TASKS_ENTITY = "tasks";
+    private static final String WISHES_ENTITY = "wishes";
+
+    // Primary key -> entity, dosyadaki sırayı korur. Listeler okuyuculara kopyalanmadan,
+    // değişmez snapshot olarak verilir (SnapshotMap)
+    // Writers change these and publish a new DataVersion; readers go through version and
+    // never wait for a writer.
+    private SnapshotMap<String, User> users;
+    private TaskStore tasks;
+    private Map<Integer, TaskTemplate> templates;
+    private SnapshotMap<Integer, Wish> wishes;
+    private SnapshotMap<Integer, Achievement> achievements;
+
+    // Another KidTask process may use the same data directory (e.g. a synced folder). File
+    // writes, full rewrites and reading the other process's changes happen under this
+    // lock, one short window at a time; see DataDirectoryLock. Taken after the stripes
+    // and before the state lock.
+    private final DataDirectoryLock directoryLock = new DataDirectoryLock(Paths.get(LOCK_FILE));
+    private final IdSequences sequences = new IdSequences(SEQUENCES_FILE, directoryLock);
+    // assignee / creator / status / type -> task id. A load builds new ones (LoadedState)
+    // and swaps them in together with the stores.
+    private TaskIndex taskIndex;
+    private TaskAggregates taskAggregates;
+    private DueDateIndex dueDateIndex;
+    // -Dkidtask.verifyAggregates=true: her yükleme/kayıttan sonra toplamları tam taramayla karşılaştır
+    private final boolean verifyAggregates = Boolean.getBoolean("kidtask.verifyAggregates");
+    // -Dkidtask.disableSnapshot=true: Snapshot.bin'i hiç kullanma, her yüklemede metin dosyalarını oku
+    private final boolean useSnapshot = !Boolean.getBoolean("kidtask.disableSnapshot");
+    // Son snapshot'tan sonra bir kayıt yapıldı mı (shutdown'da yazmak için)
+    private volatile boolean snapshotDirty;
+    // Bitmiş görevler bitiş tarihinden bu kadar gün sonra Archive.dat'a taşınır (0 = taşıma).
+    // Varsayılan kapalı: arşivdeki görevleri sadece ebeveyn panelindeki Task History gösterir
+    private final int archiveAfterDays = Integer.getInteger("kidtask.archiveAfterDays", 0);
+    private final TaskArchive taskArchive = new TaskArchive(Paths.get(ARCHIVE_FILE), Paths.get(ARCHIVE_INDEX_FILE));
+
+    // Her entity için snapshot + append-only log
+    private final JournalFile usersJournal = new JournalFile(USERS_FILE, directoryLock);
+    private final JournalFile tasksJournal = new JournalFile(TASKS_FILE, directoryLock);
+    private final JournalFile templatesJournal = new JournalFile(TEMPLATES_FILE, directoryLock);
+    private final JournalFile wishesJournal = new JournalFile(WISHES_FILE, directoryLock);
+    private final JournalFile achievementsJournal = new JournalFile(ACHIEVEMENTS_FILE, directoryLock);
+    // -Dkidtask.taskFile=mapped: görevler Tasks.dat'ta yerinde güncellenir (Tasks.txt sadece ilk açılışta taşınır).
+    // Map'li dosya tek süreç içindir: başka bir sürecin kayıtları birleştirilmez
+    private final MappedTaskFile mappedTasks = "mapped".equals(System.getProperty("kidtask.taskFile"))
+            ? new MappedTaskFile(Paths.get(TASKS_DAT_FILE)) : null;
+
+    // Data files changed since the last refresh() (by us or another process)
+    private final DataFileWatcher fileWatcher = new DataFileWatcher(Paths.get(DATA_DIR));
+
+    // Last committed state; replaced as a whole after every write
+    private final AtomicReference<DataVersion> version = new AtomicReference<>();
+    // A save takes the write lock of its kid's stripe (user, their tasks and wishes), so
+    // saves for different kids run in parallel and saves for the same kid one at a time.
+    // Loads and full rewrites take every stripe. -Dkidtask.lockStripes sets the count.
+    private final LockStripes stripes = new LockStripes(Integer.getInteger("kidtask.lockStripes", 16));
+    // The task store, indexes, templates and the version are shared by every kid: a save
+    // changes them in one short step under the write lock (no file I/O inside), index
+    // reads hold the read lock. Loads and refreshes read the files and build the new
+    // stores with every stripe held but not this lock, and take it only to swap them in.
+    // Always taken after the stripes, never before.
+    private final ReentrantReadWriteLock stateLock = new ReentrantReadWriteLock();
+    // -Dkidtask.lockStats=true: stripe bekleme istatistiklerini kapanışta stderr'e yaz
+    private final boolean printLockStats = Boolean.getBoolean("kidtask.lockStats");
+
+    private final TransactionLog transactionLog = new TransactionLog(Paths.get(TRANSACTIONS_FILE));
+    // Saves change memory and return; journal and Tasks.dat writes go to this background
+    // writer, batched per -Dkidtask.durability. Loads, full rewrites and shutdown flush it
+    // first so files are never read or rewritten behind queued writes.
+    private final WriteBehind writer = WriteBehind.fromProperties(transactionLog, mappedTasks, directoryLock);
+    // Per-record versions for runInTransaction: the number of the DataVersion that last
+    // changed the record. Records not changed since the last load have baseVersion.
+    private final Map<String, Long> recordVersions = new ConcurrentHashMap<>();
+    private volatile long baseVersion;
+    // Çakışan bir transaction en fazla bu kadar kez yeniden çalıştırılır
+    private final int transactionAttempts = Integer.getInteger("kidtask.transactionAttempts", 10);
 
     private static DataManager instance;
 
     private DataManager() {
         ensureDataDirectory();
+        // Kullanıcı id'leri çalıştırmalar arasında aynı kalsın (veri dosyalarında isimler durur)
+        SymbolTable.users().attach(Paths.get(SYMBOLS_FILE), directoryLock);
+        sequences.load();
+        // Şablonlu görev satırları şablonsuz okunamaz: şablon her zaman önce yazılır
+        writer.writeFirst(templatesJournal);
+        // -Dkidtask.explainQueries=true: her sorgunun planını stderr'e yaz
+        if (Boolean.getBoolean("kidtask.explainQueries")) {
+            TaskQuery.setStatsListener(stats -> System.err.println("[query] " + stats));
+        }
         loadAllData();
     }
 
@@ -38,6 +142,7 @@ public class DataManager {
             // Create empty files if they don't exist
             createFileIfNotExists(USERS_FILE);
             createFileIfNotExists(TASKS_FILE);
+            createFileIfNotExists(TEMPLATES_FILE);
             createFileIfNotExists(WISHES_FILE);
             createFileIfNotExists(ACHIEVEMENTS_FILE);
         } catch (IOException e) {
@@ -57,258 +162,1191 @@ public class DataManager {
     }
 
     // Load all data from files
+    // Dört dosya aynı anda okunur; büyük dosyalar ayrıca parçalara bölünüp paralel parse edilir
+    // (şablonlar görevlerden önce: şablonlu görev satırları onlara bağlanır)
+    // Readers keep seeing the previous version, and index reads the previous indexes,
+    // until the load is swapped in and published in one step
     public void loadAllData() {
-        users = loadUsers();
-        tasks = loadTasks();
-        wishes = loadWishes();
-        achievements = loadAchievements();
+        stripes.lockAll();
+        directoryLock.lock();
+        try {
+            load();
+        } finally {
+            directoryLock.unlock();
+            stripes.unlockAll();
+        }
     }
 
-    // ========== USER OPERATIONS ==========
-    private List<User> loadUsers() {
-        List<User> userList = new ArrayList<>();
-        try (BufferedReader reader = Files.newBufferedReader(Paths.get(USERS_FILE))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (!line.isEmpty()) {
-                    try {
-                        userList.add(User.fromFileString(line));
-                    } catch (Exception e) {
-                        System.err.println("Error parsing user: " + line + " - " + e.getMessage());
-                    }
+    // Reads only what other processes changed in the data files since our last load,
+    // refresh or write: nothing when no file changed (navigation only stats the files),
+    // the new lines at the end of a log segment, or a whole entity whose snapshot file was
+    // rewritten (checkpoint, compaction). Task or template files rewritten by someone else
+    // reload everything like loadAllData(). Records changed here and in the other process
+    // since our last read end up as the later of the two writes (a warning is logged).
+    // Returns false if nothing changed.
+    public boolean refresh() {
+        // Dosya olayları kaçabilir (ağ/senkron klasörler); karar her zaman stamp karşılaştırmasıyla
+        // verilir, olaylar sadece kimliği bilinmeyen Tasks.dat için kullanılır
+        Set<String> changedFiles = fileWatcher.drainChanges();
+        stripes.lockAll();
+        directoryLock.lock();
+        try {
+            boolean mappedChanged = mappedTasksReplaced(changedFiles);
+            // Önce sadece stat: değişiklik yoksa bekleyen kendi kayıtlarımızı da zorlamayız
+            if (!mappedChanged && !anyJournalChanged()) {
+                return false;
+            }
+            // Sıradaki kendi yazılarımız önce dosyaya gitsin; stamp'ler onlarla karşılaştırılır
+            writer.flush();
+            return refreshChanged(mappedChanged);
+        } finally {
+            directoryLock.unlock();
+            stripes.unlockAll();
+        }
+    }
+
+    // Before a full rewrite or Snapshot.bin: reads what other processes appended, so the
+    // rewrite keeps their records. Call with the stripes and the directory lock held.
+    private void catchUp() {
+        writer.flush();
+        refreshChanged(false);
+    }
+
+    // Our pending writes are not on disk yet, so they do not move the stamps; only another
+    // process's writes do. Call with the directory lock held.
+    private boolean anyJournalChanged() {
+        try {
+            for (JournalFile journal : journals()) {
+                if (journal == tasksJournal && mappedTasks != null) {
+                    continue;
+                }
+                if (journal.changes() != JournalFile.Change.NONE) {
+                    return true;
                 }
             }
+            return false;
+        } catch (IOException e) {
+            // refreshChanged okumayı dener ve hatayı yazar
+            return true;
+        }
+    }
+
+    // Tasks.dat is written through the map, so only a replaced file (checkpoint) is seen;
+    // without file identities the watcher's events for it are all there is to go on
+    private boolean mappedTasksReplaced(Set<String> changedFiles) {
+        if (mappedTasks == null) {
+            return false;
+        }
+        if (!mappedTasks.tracksReplacement()) {
+            return changedFiles == null || changedFiles.stream().anyMatch(mappedTasks::owns);
+        }
+        try {
+            return mappedTasks.isReplaced();
+        } catch (IOException e) {
+            System.err.println("Error checking task file: " + e.getMessage());
+            return true;
+        }
+    }
+
+    // mappedChanged: Tasks.dat was replaced (reload the tasks)
+    private boolean refreshChanged(boolean mappedChanged) {
+        JournalFile.Change userChange;
+        JournalFile.Change taskChange;
+        JournalFile.Change wishChange;
+        JournalFile.Change achievementChange;
+        boolean reloadTasks;
+        try {
+            userChange = usersJournal.changes();
+            wishChange = wishesJournal.changes();
+            achievementChange = achievementsJournal.changes();
+            // Değişen bir şablonu görevler paylaşır; o zaman görevler de baştan okunur
+            reloadTasks = templatesJournal.changes() != JournalFile.Change.NONE;
+            if (mappedTasks != null) {
+                // Tasks.dat'a map üzerinden yazılır: başka süreçlerin kayıtları stamp'i
+                // değiştirmez, sadece dosya yeniden oluşturulursa (checkpoint) görülür
+                taskChange = JournalFile.Change.NONE;
+                reloadTasks |= mappedChanged;
+            } else {
+                taskChange = tasksJournal.changes();
+                reloadTasks |= taskChange == JournalFile.Change.FULL;
+            }
+        } catch (IOException e) {
+            System.err.println("Error checking data files: " + e.getMessage());
+            userChange = taskChange = wishChange = achievementChange = JournalFile.Change.NONE;
+            reloadTasks = true;
+        }
+        if (reloadTasks) {
+            load();
+            return true;
+        }
+        if (userChange == JournalFile.Change.NONE && taskChange == JournalFile.Change.NONE
+                && wishChange == JournalFile.Change.NONE && achievementChange == JournalFile.Change.NONE) {
+            return false;
+        }
+        // Dosyalar kilitsiz okunur (stripe'lar tutulduğu için kimse kaydetmez); okunanlar
+        // state kilidi altında tek adımda uygulanır
+        List<Runnable> changes = new ArrayList<>();
+        boolean reloaded = false;
+        SymbolTable.users().beginLoad();
+        try {
+            if (userChange == JournalFile.Change.FULL) {
+                SnapshotMap<String, User> reloadedUsers = loadUsers();
+                changes.add(() -> users = reloadedUsers);
+                reloaded = true;
+            } else if (userChange == JournalFile.Change.TAIL) {
+                usersJournal.readTail(User::read, user -> changes.add(() -> {
+                    users.put(user.getUsername(), user);
+                    touched(Transaction.userKey(user.getUsername()));
+                }), key -> changes.add(() -> {
+                    users.remove(key);
+                    touched(Transaction.userKey(key));
+                }), (line, e) -> System.err.println("Error parsing user: " + line + " - " + e.getMessage()));
+            }
+            if (taskChange == JournalFile.Change.TAIL) {
+                tasksJournal.readTail(in -> Task.read(in, templates::get), task -> changes.add(() -> {
+                    tasks.put(task);
+                    taskIndex.update(task);
+                    touched(Transaction.taskKey(task.getId()));
+                    sequences.observe(TASK_SEQUENCE, task.getId());
+                }), key -> changes.add(() -> {
+                    int id = Integer.parseInt(key);
+                    taskIndex.remove(id);
+                    tasks.remove(id);
+                    touched(Transaction.taskKey(id));
+                }), (line, e) -> System.err.println("Error parsing task: " + line + " - " + e.getMessage()));
+            }
+            if (wishChange == JournalFile.Change.FULL) {
+                SnapshotMap<Integer, Wish> reloadedWishes = loadWishes();
+                changes.add(() -> wishes = reloadedWishes);
+                reloaded = true;
+            } else if (wishChange == JournalFile.Change.TAIL) {
+                wishesJournal.readTail(Wish::read, wish -> changes.add(() -> {
+                    wishes.put(wish.getId(), wish);
+                    touched(Transaction.wishKey(wish.getId()));
+                }), key -> changes.add(() -> {
+                    int id = Integer.parseInt(key);
+                    wishes.remove(id);
+                    touched(Transaction.wishKey(id));
+                }), (line, e) -> System.err.println("Error parsing wish: " + line + " - " + e.getMessage()));
+            }
+            if (achievementChange == JournalFile.Change.FULL) {
+                SnapshotMap<Integer, Achievement> reloadedAchievements = loadAchievements();
+                changes.add(() -> achievements = reloadedAchievements);
+            } else if (achievementChange == JournalFile.Change.TAIL) {
+                achievementsJournal.readTail(Achievement::read,
+                        achievement -> changes.add(() -> achievements.put(achievement.getId(), achievement)),
+                        key -> changes.add(() -> achievements.remove(Integer.parseInt(key))),
+                        (line, e) -> System.err.println("Error parsing achievement: " + line + " - " + e.getMessage()));
+            }
+        } catch (IOException e) {
+            System.err.println("Error refreshing data: " + e.getMessage());
+        } finally {
+            SymbolTable.users().endLoad();
+        }
+        snapshotDirty = true;
+        stateLock.writeLock().lock();
+        try {
+            changes.forEach(Runnable::run);
+            publish();
+            if (reloaded) {
+                // Baştan okunan kayıtların hangisinin değiştiği bilinmiyor: hepsi bu sürümden sayılır
+                baseVersion = pin().getNumber();
+                recordVersions.clear();
+            }
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+        wishes.keySet().forEach(id -> sequences.observe(WISH_SEQUENCE, id));
+        achievements.keySet().forEach(id -> sequences.observe(ACHIEVEMENT_SEQUENCE, id));
+        verifyAggregates("refresh");
+        return true;
+    }
+
+    private List<JournalFile> journals() {
+        return List.of(usersJournal, tasksJournal, templatesJournal, wishesJournal, achievementsJournal);
+    }
+
+    // Stores and indexes read by a load, swapped in as a whole by install()
+    private static class LoadedState {
+        SnapshotMap<String, User> users;
+        Map<Integer, TaskTemplate> templates;
+        TaskStore tasks;
+        SnapshotMap<Integer, Wish> wishes;
+        SnapshotMap<Integer, Achievement> achievements;
+        final TaskIndex taskIndex = new TaskIndex();
+        final TaskAggregates taskAggregates = new TaskAggregates();
+        final DueDateIndex dueDateIndex = new DueDateIndex();
+
+        LoadedState() {
+            taskIndex.addListener(taskAggregates);
+            taskIndex.addListener(dueDateIndex);
+        }
+    }
+
+    // Call with every stripe and the directory lock held: no save runs until we return.
+    // The files are parsed and the indexes built off to the side; readers keep using the
+    // current ones and wait only for the swap.
+    private void load() {
+        writer.flush();
+        openArchive();
+        List<String> stamps = useSnapshot ? dataFileStamps() : null;
+        LoadedState loaded;
+        boolean fromSnapshot;
+        // Paralel parse eden thread'ler yeni kullanıcı adlarını bu thread'in kilidiyle ekler
+        SymbolTable.users().beginLoad();
+        try {
+            loaded = stamps != null ? loadSnapshot(stamps) : null;
+            fromSnapshot = loaded != null;
+            if (!fromSnapshot) {
+                loaded = loadFiles();
+            }
+        } finally {
+            SymbolTable.users().endLoad();
+        }
+        install(loaded);
+        verifyAggregates(fromSnapshot ? "snapshot load" : "load");
+        observeSequences();
+        // Arşivleme ve kurtarılan transaction'lar normal kayıtlar gibi uygulanır.
+        // Bir sonraki açılış bu yüklemeyi tekrar parse etmesin (dosyalar değiştiyse
+        // snapshot kapanışta yazılır)
+        boolean changed = archiveFinishedTasks();
+        changed |= recoverTransactions();
+        if (!fromSnapshot && !changed && stamps != null) {
+            writeSnapshot(stamps);
+        }
+    }
+
+    private LoadedState loadFiles() {
+        LoadedState loaded = new LoadedState();
+        ForkJoinTask<SnapshotMap<String, User>> usersTask = ForkJoinTask.adapt(this::loadUsers);
+        ForkJoinTask<TaskStore> tasksTask = ForkJoinTask.adapt(() -> {
+            loaded.templates = loadTemplates();
+            return loadTasks(loaded.templates);
+        });
+        ForkJoinTask<SnapshotMap<Integer, Wish>> wishesTask = ForkJoinTask.adapt(this::loadWishes);
+        ForkJoinTask<SnapshotMap<Integer, Achievement>> achievementsTask = ForkJoinTask.adapt(this::loadAchievements);
+        ForkJoinPool.commonPool().invoke(ForkJoinTask.adapt(
+                () -> ForkJoinTask.invokeAll(usersTask, tasksTask, wishesTask, achievementsTask)));
+        loaded.users = usersTask.join();
+        loaded.tasks = tasksTask.join();
+        loaded.wishes = wishesTask.join();
+        loaded.achievements = achievementsTask.join();
+        loaded.taskIndex.rebuild(loaded.tasks);
+        return loaded;
+    }
+
+    // Swaps the loaded state in and publishes it; every record counts as loaded in this
+    // version (transactions that read before it conflict)
+    private void install(LoadedState loaded) {
+        stateLock.writeLock().lock();
+        try {
+            users = loaded.users;
+            templates = loaded.templates;
+            tasks = loaded.tasks;
+            wishes = loaded.wishes;
+            achievements = loaded.achievements;
+            taskIndex = loaded.taskIndex;
+            taskAggregates = loaded.taskAggregates;
+            dueDateIndex = loaded.dueDateIndex;
+            publish();
+            baseVersion = pin().getNumber();
+            recordVersions.clear();
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+    }
+
+    // Current committed state. Hold on to it to make several reads from the same version;
+    // it never changes and costs nothing to keep for the length of a screen update.
+    public DataVersion pin() {
+        return version.get();
+    }
+
+    // Called with the state write lock held, so versions are published in commit order
+    private void publish() {
+        version.set(new DataVersion(nextVersionNumber(), users.view(), tasks.view(), wishes.view(),
+                achievements.view()));
+    }
+
+    private long nextVersionNumber() {
+        DataVersion last = version.get();
+        return last == null ? 1 : last.getNumber() + 1;
+    }
+
+    // Sayaçlar dosyadaki en büyük id'nin gerisinde kalmasın
+    private void observeSequences() {
+        tasks.forEach(task -> sequences.observe(TASK_SEQUENCE, task.getId()));
+        sequences.observe(TASK_SEQUENCE, taskArchive.maxId());
+        templates.keySet().forEach(id -> sequences.observe(TEMPLATE_SEQUENCE, id));
+        wishes.keySet().forEach(id -> sequences.observe(WISH_SEQUENCE, id));
+        achievements.keySet().forEach(id -> sequences.observe(ACHIEVEMENT_SEQUENCE, id));
+    }
+
+    // Applies a change to the shared state and publishes it as one new version
+    private void commit(Runnable change) {
+        stateLock.writeLock().lock();
+        try {
+            change.run();
+            publish();
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+    }
+
+    // Runs a read of the indexes (or the column stores) while no save is changing them
+    private <T> T readState(Supplier<T> reader) {
+        stateLock.readLock().lock();
+        try {
+            return reader.get();
+        } finally {
+            stateLock.readLock().unlock();
+        }
+    }
+
+    // Runs several reads of one kid with no save for that kid in between, e.g. their
+    // totals and their task list for the same dashboard. Saves for other kids go on.
+    public <T> T readUser(String username, Supplier<T> reads) {
+        int[] held = stripes.lockRead(username);
+        try {
+            return reads.get();
+        } finally {
+            stripes.unlockRead(held);
+        }
+    }
+
+    // How often each lock stripe was taken and waited for since startup
+    public List<LockStripes.Stats> getLockStats() {
+        return stripes.stats();
+    }
+
+    // Returns once every save made so far is in the data files (logout, tests)
+    public void flush() {
+        writer.flush();
+    }
+
+    // Writes Snapshot.bin if anything was saved since the last one; call when the app exits
+    public void shutdown() {
+        writer.flush();
+        stripes.lockAll();
+        directoryLock.lock();
+        try {
+            if (useSnapshot && snapshotDirty) {
+                // Snapshot.bin dosyaların şu anki hâlini tutmalı: diğer süreçlerin satırları da okunur
+                catchUp();
+                List<String> stamps = dataFileStamps();
+                if (stamps != null) {
+                    writeSnapshot(stamps);
+                }
+            }
+        } finally {
+            directoryLock.unlock();
+            stripes.unlockAll();
+        }
+        if (printLockStats) {
+            for (LockStripes.Stats stats : stripes.stats()) {
+                System.err.println("[locks] " + stats);
+            }
+            System.err.println("[locks] " + directoryLock);
+        }
+    }
+
+    // Write locks for an entity's kid and, if the save moves it to another kid, the kid it
+    // is committed under. Retried if a parallel save moved it in between.
+    private int[] lockOwners(Object owner, Supplier<Object> committedOwner) {
+        while (true) {
+            Object before = committedOwner.get();
+            int[] held = stripes.lockWrite(Stream.of(owner, before).filter(Objects::nonNull).distinct().toArray());
+            if (Objects.equals(before, committedOwner.get())) {
+                return held;
+            }
+            stripes.unlockWrite(held);
+        }
+    }
+
+    // null if Snapshot.bin is missing, stale or damaged
+    private LoadedState loadSnapshot(List<String> stamps) {
+        try {
+            LoadedState loaded = new LoadedState();
+            DataSnapshot snapshot = DataSnapshot.read(Paths.get(SNAPSHOT_FILE), stamps, loaded.taskAggregates,
+                    loaded.dueDateIndex);
+            if (snapshot == null) {
+                return null;
+            }
+            if (mappedTasks != null) {
+                // Kayıtlar snapshot'tan geldi; dosya sadece sonraki yazmalar için açılır
+                mappedTasks.open();
+            }
+            // Journal'lar snapshot'taki hâlden sonraki değişiklikleri izler
+            for (JournalFile journal : journals()) {
+                journal.markLoaded();
+            }
+            loaded.users = snapshot.users;
+            loaded.templates = snapshot.templates;
+            loaded.tasks = snapshot.tasks;
+            loaded.wishes = snapshot.wishes;
+            loaded.achievements = snapshot.achievements;
+            // Toplamlar ve tarih index'i snapshot'tan geldi; sadece TaskIndex kurulur
+            loaded.taskIndex.rebuild(loaded.tasks, Set.of(loaded.taskAggregates, loaded.dueDateIndex));
+            snapshotDirty = false;
+            return loaded;
+        } catch (IOException e) {
+            System.err.println("Error loading snapshot: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // stamps: the data files as they were when the in-memory state was read or last saved
+    private void writeSnapshot(List<String> stamps) {
+        try {
+            DataSnapshot.write(Paths.get(SNAPSHOT_FILE), stamps, users.values(), templates.values(), tasks,
+                    wishes.values(), achievements.values(), taskAggregates, dueDateIndex);
+            snapshotDirty = false;
+        } catch (IOException e) {
+            System.err.println("Error saving snapshot: " + e.getMessage());
+        }
+    }
+
+    private List<String> dataFileStamps() {
+        try {
+            return DataSnapshot.stamps(Paths.get(DATA_DIR));
+        } catch (IOException e) {
+            System.err.println("Error reading data file stamps: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // ========== USER OPERATIONS ==========
+    private SnapshotMap<String, User> loadUsers() {
+        SnapshotMap<String, User> userMap = new SnapshotMap<>();
+        try {
+            usersJournal.load(User::read, user -> userMap.put(user.getUsername(), user), userMap::remove,
+                    (line, e) -> System.err.println("Error parsing user: " + line + " - " + e.getMessage()));
         } catch (IOException e) {
             System.err.println("Error loading users: " + e.getMessage());
         }
-        return userList;
+        return userMap;
     }
 
+    // Read-only and not affected by later saves; no copy is made
     public List<User> getUsers() {
-        return new ArrayList<>(users);
+        return pin().getUsers();
     }
 
+    // A copy to edit and pass to saveUser
     public User getUserByUsername(String username) {
-        return users.stream()
-                .filter(u -> u.getUsername().equals(username))
-                .findFirst()
-                .orElse(null);
+        User user = pin().getUser(username);
+        return user == null ? null : user.copy();
     }
 
     public boolean authenticateUser(String username, String password) {
-        User user = getUserByUsername(username);
+        User user = pin().getUser(username);
         return user != null && user.getPassword().equals(password);
     }
 
     public void saveUser(User user) {
-        User existing = getUserByUsername(user.getUsername());
-        if (existing != null) {
-            users.remove(existing);
+        int[] held = stripes.lockWrite(user.getUsername());
+        try {
+            snapshotDirty = true;
+            // Kaydedilen nesnenin kopyası commit edilir; çağıranın nesnesi yayınlanan sürümü değiştiremez
+            User committed = user.copy();
+            commit(() -> {
+                users.put(committed.getUsername(), committed);
+                touched(Transaction.userKey(committed.getUsername()));
+            });
+            // Kuyruğa stripe tutulurken girer: aynı kaydın yazıları commit sırasıyla diske gider
+            writer.upsert(usersJournal, committed.toFileString());
+        } finally {
+            stripes.unlockWrite(held);
         }
-        users.add(user);
-        saveUsers();
+        writer.committed();
     }
 
+    // Full rewrite of Users.txt (also drops the Users log segments)
     public void saveUsers() {
-        try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(USERS_FILE))) {
-            for (User user : users) {
-                writer.write(user.toFileString());
-                writer.newLine();
-            }
+        stripes.lockAll();
+        directoryLock.lock();
+        try {
+            snapshotDirty = true;
+            catchUp();
+            usersJournal.checkpoint(users.values(), User::write);
         } catch (IOException e) {
             System.err.println("Error saving users: " + e.getMessage());
+        } finally {
+            directoryLock.unlock();
+            stripes.unlockAll();
         }
     }
 
     // ========== TASK OPERATIONS ==========
-    private List<Task> loadTasks() {
-        List<Task> taskList = new ArrayList<>();
-        try (BufferedReader reader = Files.newBufferedReader(Paths.get(TASKS_FILE))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (!line.isEmpty()) {
-                    try {
-                        taskList.add(Task.fromFileString(line));
-                    } catch (Exception e) {
-                        System.err.println("Error parsing task: " + line + " - " + e.getMessage());
-                    }
+    private TaskStore loadTasks(Map<Integer, TaskTemplate> shared) {
+        TaskStore taskMap = TaskStore.create();
+        if (mappedTasks != null) {
+            loadMappedTasks(taskMap, shared);
+            return taskMap;
+        }
+        try {
+            tasksJournal.load(in -> Task.read(in, shared::get), taskMap::put,
+                    key -> taskMap.remove(Integer.parseInt(key)),
+                    (line, e) -> System.err.println("Error parsing task: " + line + " - " + e.getMessage()));
+        } catch (IOException e) {
+            System.err.println("Error loading tasks: " + e.getMessage());
+        }
+        return taskMap;
+    }
+
+    private void loadMappedTasks(TaskStore taskMap, Map<Integer, TaskTemplate> shared) {
+        try {
+            if (mappedTasks.open()) {
+                // Tasks.dat yeni oluşturuldu: mevcut görevleri Tasks.txt + log'lardan taşı
+                tasksJournal.load(in -> Task.read(in, shared::get), taskMap::put,
+                        key -> taskMap.remove(Integer.parseInt(key)),
+                        (line, e) -> System.err.println("Error parsing task: " + line + " - " + e.getMessage()));
+                for (Task task : taskMap.values()) {
+                    mappedTasks.write(task);
                 }
+                return;
             }
+            mappedTasks.load(shared::get, taskMap::put,
+                    (record, e) -> System.err.println("Error reading task " + record + ": " + e.getMessage()));
         } catch (IOException e) {
             System.err.println("Error loading tasks: " + e.getMessage());
         }
-        return taskList;
     }
 
+    private void openArchive() {
+        try {
+            taskArchive.open();
+        } catch (IOException e) {
+            System.err.println("Error opening task archive: " + e.getMessage());
+        }
+    }
+
+    // Moves COMPLETED/FINALIZED tasks due more than archiveAfterDays ago from the task
+    // files into the archive, then rewrites the task files without them. Loaded tasks that
+    // are already archived (a move cut short before the rewrite) are only dropped.
+    // Returns true if the task files changed. Call with every stripe held.
+    private boolean archiveFinishedTasks() {
+        LocalDate cutoff = LocalDate.now().minusDays(archiveAfterDays);
+        List<Integer> moved = new ArrayList<>();
+        List<Task> finished = new ArrayList<>();
+        for (Task.TaskStatus status : EnumSet.of(Task.TaskStatus.COMPLETED, Task.TaskStatus.FINALIZED)) {
+            for (Integer id : taskIndex.byStatus(status)) {
+                if (taskArchive.isArchived(id)) {
+                    moved.add(id);
+                    continue;
+                }
+                LocalDate dueDate = taskIndex.getEntry(id).getDueDate();
+                if (archiveAfterDays > 0 && dueDate != null && dueDate.isBefore(cutoff)) {
+                    finished.add(tasks.get(id));
+                }
+            }
+        }
+        if (!finished.isEmpty()) {
+            try {
+                taskArchive.append(finished);
+                for (Task task : finished) {
+                    moved.add(task.getId());
+                }
+            } catch (IOException e) {
+                System.err.println("Error archiving tasks: " + e.getMessage());
+            }
+        }
+        if (moved.isEmpty()) {
+            return false;
+        }
+        commit(() -> {
+            for (int id : moved) {
+                taskIndex.remove(id);
+                tasks.remove(id);
+                touched(Transaction.taskKey(id));
+            }
+        });
+        saveTasks();
+        verifyAggregates("archive");
+        return true;
+    }
+
+    // Read-only; see TaskStore.snapshot for when this is a copy
     public List<Task> getTasks() {
-        return new ArrayList<>(tasks);
+        DataVersion current = pin();
+        if (current.hasTasks()) {
+            return current.getTasks();
+        }
+        return readState(tasks::snapshot);
+    }
+
+    // A copy of the committed task. The column stores only have the live row: it is
+    // copied under the state lock, so an edit never writes into the shared row.
+    private Task readTask(int id) {
+        DataVersion current = pin();
+        if (current.hasTasks()) {
+            Task task = current.getTask(id);
+            return task == null ? null : task.copy();
+        }
+        return readState(() -> {
+            Task task = tasks.get(id);
+            return task == null ? null : task.copy();
+        });
     }
 
     public List<Task> getTasksByAssignee(String assignee) {
-        return tasks.stream()
-                .filter(t -> t.getAssignee().equals(assignee))
-                .collect(Collectors.toList());
+        return readState(() -> resolveTasks(taskIndex.byAssignee(assignee)));
+    }
+
+    public List<Task> getTasksByCreator(String creator) {
+        return readState(() -> resolveTasks(taskIndex.byCreator(creator)));
     }
 
     public List<Task> getTasksByStatus(Task.TaskStatus status) {
-        return tasks.stream()
-                .filter(t -> t.getStatus() == status)
-                .collect(Collectors.toList());
+        return readState(() -> resolveTasks(taskIndex.byStatus(status)));
     }
 
     public List<Task> getTasksByType(Task.TaskType type) {
-        return tasks.stream()
-                .filter(t -> t.getType() == type)
-                .collect(Collectors.toList());
+        return readState(() -> resolveTasks(taskIndex.byType(type)));
+    }
+
+    // Runs a TaskQuery against the task indexes (see TaskQuery for the plan rules)
+    public List<Task> query(TaskQuery query) {
+        return readState(() -> query.execute(taskIndex, this::readTask));
+    }
+
+    // Precomputed totals (task counts, completed, points, ratings); see TaskAggregates.
+    // Archived tasks are included.
+    public TaskAggregates.Totals getAssigneeTotals(String assignee) {
+        return readState(() -> taskAggregates.forAssignee(assignee)).plus(taskArchive.forAssignee(assignee));
+    }
+
+    public TaskAggregates.Totals getCreatorTotals(String creator) {
+        return readState(() -> taskAggregates.forCreator(creator)).plus(taskArchive.forCreator(creator));
+    }
+
+    public TaskAggregates.Totals getTypeTotals(Task.TaskType type) {
+        return readState(() -> taskAggregates.forType(type)).plus(taskArchive.forType(type));
+    }
+
+    // Finished (COMPLETED/FINALIZED) tasks of the assignee (null = everyone) due between
+    // from and to (inclusive, null = open), loaded and archived ones together, in due-date
+    // order. Only the archive blocks that can contain a match are read.
+    public List<Task> getTaskHistory(String assignee, LocalDate from, LocalDate to) {
+        List<Task> history = readState(() -> {
+            List<Task> loaded = new ArrayList<>();
+            Set<Integer> ids = assignee == null ? taskIndex.allIds() : taskIndex.byAssignee(assignee);
+            for (Integer id : ids) {
+                TaskIndex.Entry entry = taskIndex.getEntry(id);
+                if (isFinished(entry.getStatus()) && isDueBetween(entry.getDueDate(), from, to)) {
+                    loaded.add(readTask(id));
+                }
+            }
+            return loaded;
+        });
+        try {
+            taskArchive.scan(assignee, from, to, history::add);
+        } catch (IOException e) {
+            System.err.println("Error reading task archive: " + e.getMessage());
+        }
+        history.sort(Comparator.comparing(Task::getDueDate, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparingInt(Task::getId));
+        return history;
+    }
+
+    private static boolean isFinished(Task.TaskStatus status) {
+        return status == Task.TaskStatus.COMPLETED || status == Task.TaskStatus.FINALIZED;
+    }
+
+    // Tarihsiz görevler sadece aralık tamamen açıksa dahil edilir
+    private static boolean isDueBetween(LocalDate dueDate, LocalDate from, LocalDate to) {
+        if (dueDate == null) {
+            return from == null && to == null;
+        }
+        return (from == null || !dueDate.isBefore(from)) && (to == null || !dueDate.isAfter(to));
+    }
+
+    // Due-date ordered schedules (tasks without a due date are left out)
+    public TaskSchedule getScheduleForAssignee(String assignee) {
+        return new TaskSchedule(() -> dueDateIndex.forAssignee(assignee), this::readTask, stateLock.readLock());
+    }
+
+    public TaskSchedule getScheduleForType(Task.TaskType type) {
+        return new TaskSchedule(() -> dueDateIndex.forType(type), this::readTask, stateLock.readLock());
+    }
+
+    private void verifyAggregates(String after) {
+        if (!verifyAggregates) {
+            return;
+        }
+        for (String problem : taskAggregates.verify(tasks)) {
+            System.err.println("Aggregate mismatch after " + after + ": " + problem);
+        }
+    }
+
+    private List<Task> resolveTasks(Collection<Integer> ids) {
+        List<Task> result = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            Task task = readTask(id);
+            if (task != null) {
+                result.add(task);
+            }
+        }
+        return result;
     }
 
     public Task getTaskById(int id) {
-        return tasks.stream()
-                .filter(t -> t.getId() == id)
-                .findFirst()
-                .orElse(null);
+        return readTask(id);
     }
 
     public void saveTask(Task task) {
-        Task existing = getTaskById(task.getId());
-        if (existing != null) {
-            tasks.remove(existing);
+        int[] held = lockOwners(task.getAssignee(), () -> committedAssignee(task.getId()));
+        try {
+            snapshotDirty = true;
+            Task committed = pin().hasTasks() ? task.copy() : task;
+            commit(() -> {
+                tasks.put(committed);
+                taskIndex.update(task);
+                touched(Transaction.taskKey(task.getId()));
+                verifyAggregates("save task " + task.getId());
+            });
+            sequences.observe(TASK_SEQUENCE, task.getId());
+            if (mappedTasks != null) {
+                writer.writeMapped(task.copy());
+            } else {
+                writer.upsert(tasksJournal, task.toFileString());
+            }
+        } finally {
+            stripes.unlockWrite(held);
         }
-        tasks.add(task);
-        saveTasks();
+        writer.committed();
     }
 
+    String committedAssignee(int id) {
+        return readState(() -> {
+            TaskIndex.Entry entry = taskIndex.getEntry(id);
+            return entry == null ? null : entry.getAssignee();
+        });
+    }
+
+    // Full rewrite of Tasks.txt (or Tasks.dat) and Templates.txt (also drops their log
+    // segments). Templates no task points at any more are left out.
     public void saveTasks() {
-        try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(TASKS_FILE))) {
-            for (Task task : tasks) {
-                writer.write(task.toFileString());
-                writer.newLine();
+        stripes.lockAll();
+        directoryLock.lock();
+        try {
+            snapshotDirty = true;
+            // Görev yazan herkes bir stripe tutar; sadece şablon listesi kilit altında kopyalanır
+            List<TaskTemplate> kept;
+            catchUp();
+            stateLock.writeLock().lock();
+            try {
+                Set<Integer> used = new HashSet<>();
+                tasks.forEach(task -> {
+                    if (task.getTemplate() != null) {
+                        used.add(task.getTemplateId());
+                    }
+                });
+                templates.keySet().retainAll(used);
+                kept = new ArrayList<>(templates.values());
+            } finally {
+                stateLock.writeLock().unlock();
+            }
+            templatesJournal.checkpoint(kept, TaskTemplate::write);
+            if (mappedTasks != null) {
+                mappedTasks.checkpoint(tasks.values());
+            } else {
+                tasksJournal.checkpoint(tasks.values(), Task::write);
             }
         } catch (IOException e) {
             System.err.println("Error saving tasks: " + e.getMessage());
+        } finally {
+            directoryLock.unlock();
+            stripes.unlockAll();
         }
     }
 
     public int getNextTaskId() {
-        return tasks.stream()
-                .mapToInt(Task::getId)
-                .max()
-                .orElse(0) + 1;
+        return sequences.next(TASK_SEQUENCE);
     }
 
-    // ========== WISH OPERATIONS ==========
-    private List<Wish> loadWishes() {
-        List<Wish> wishList = new ArrayList<>();
-        try (BufferedReader reader = Files.newBufferedReader(Paths.get(WISHES_FILE))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (!line.isEmpty()) {
-                    try {
-                        wishList.add(Wish.fromFileString(line));
-                    } catch (Exception e) {
-                        System.err.println("Error parsing wish: " + line + " - " + e.getMessage());
-                    }
-                }
+    // ========== TEMPLATE OPERATIONS ==========
+    private Map<Integer, TaskTemplate> loadTemplates() {
+        Map<Integer, TaskTemplate> templateMap = new HashMap<>();
+        try {
+            templatesJournal.load(TaskTemplate::read, template -> templateMap.put(template.getId(), template),
+                    key -> templateMap.remove(Integer.parseInt(key)),
+                    (line, e) -> System.err.println("Error parsing template: " + line + " - " + e.getMessage()));
+        } catch (IOException e) {
+            System.err.println("Error loading templates: " + e.getMessage());
+        }
+        return templateMap;
+    }
+
+    public TaskTemplate getTemplateById(int id) {
+        return readState(() -> templates.get(id));
+    }
+
+    public int getNextTemplateId() {
+        return sequences.next(TEMPLATE_SEQUENCE);
+    }
+
+    // Saves the template once and one ASSIGNED task per assignee pointing at it.
+    // The shared content is written to Templates.txt only; each task line is just
+    // id;template;status;assignee;rating.
+    public List<Task> assignTemplate(TaskTemplate template, Collection<String> assignees) {
+        // Şablon kimsenin değil: stripe id'den seçilir (yükleme sırasında beklesin)
+        int[] held = stripes.lockWrite(template.getId());
+        try {
+            snapshotDirty = true;
+            stateLock.writeLock().lock();
+            try {
+                templates.put(template.getId(), template);
+            } finally {
+                stateLock.writeLock().unlock();
             }
+        } finally {
+            stripes.unlockWrite(held);
+        }
+        sequences.observe(TEMPLATE_SEQUENCE, template.getId());
+        // Aynı toplu yazımda Templates log'u görev log'undan önce yazılır (writeFirst)
+        writer.upsert(templatesJournal, template.toFileString());
+        List<Task> assigned = new ArrayList<>(assignees.size());
+        for (String assignee : assignees) {
+            Task task = new Task(getNextTaskId(), template, Task.TaskStatus.ASSIGNED, assignee, 0);
+            saveTask(task);
+            assigned.add(task);
+        }
+        return assigned;
+    }
+
+    // Every kid's task created from the template (tasks changed into standalone copies are not included)
+    public List<Task> getTasksByTemplate(int templateId) {
+        return readState(() -> resolveTasks(taskIndex.byTemplate(templateId)));
+    }
+
+    // ========== WISH OPERATIONS ==========
+    private SnapshotMap<Integer, Wish> loadWishes() {
+        SnapshotMap<Integer, Wish> wishMap = new SnapshotMap<>();
+        try {
+            wishesJournal.load(Wish::read, wish -> wishMap.put(wish.getId(), wish),
+                    key -> wishMap.remove(Integer.parseInt(key)),
+                    (line, e) -> System.err.println("Error parsing wish: " + line + " - " + e.getMessage()));
         } catch (IOException e) {
             System.err.println("Error loading wishes: " + e.getMessage());
         }
-        return wishList;
+        return wishMap;
     }
 
     public List<Wish> getWishes() {
-        return new ArrayList<>(wishes);
+        return pin().getWishes();
     }
 
+    // Filtered lists hold copies: the screens approve/delete wishes straight from them
     public List<Wish> getWishesByOwner(String owner) {
-        return wishes.stream()
-                .filter(w -> w.getOwner().equals(owner))
+        int ownerId = SymbolTable.users().find(owner);
+        return pin().getWishes().stream()
+                .filter(w -> w.getOwnerId() == ownerId)
+                .map(Wish::copy)
                 .collect(Collectors.toList());
     }
 
     public List<Wish> getWishesByStatus(Wish.WishStatus status) {
-        return wishes.stream()
+        return pin().getWishes().stream()
                 .filter(w -> w.getStatus() == status)
+                .map(Wish::copy)
                 .collect(Collectors.toList());
     }
 
     public void saveWish(Wish wish) {
-        wishes.add(wish);
-        saveWishes();
+        int[] held = lockOwners(wish.getOwner(), () -> committedWishOwner(wish.getId()));
+        try {
+            snapshotDirty = true;
+            Wish committed = wish.copy();
+            commit(() -> {
+                wishes.put(committed.getId(), committed);
+                touched(Transaction.wishKey(committed.getId()));
+            });
+            sequences.observe(WISH_SEQUENCE, wish.getId());
+            writer.upsert(wishesJournal, committed.toFileString());
+        } finally {
+            stripes.unlockWrite(held);
+        }
+        writer.committed();
     }
 
+    String committedWishOwner(int id) {
+        Wish wish = pin().getWish(id);
+        return wish == null ? null : wish.getOwner();
+    }
+
+    // Full rewrite of Wishes.txt (also drops the Wishes log segments)
     public void saveWishes() {
-        try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(WISHES_FILE))) {
-            for (Wish wish : wishes) {
-                writer.write(wish.toFileString());
-                writer.newLine();
-            }
+        stripes.lockAll();
+        directoryLock.lock();
+        try {
+            snapshotDirty = true;
+            catchUp();
+            wishesJournal.checkpoint(wishes.values(), Wish::write);
         } catch (IOException e) {
             System.err.println("Error saving wishes: " + e.getMessage());
+        } finally {
+            directoryLock.unlock();
+            stripes.unlockAll();
         }
     }
 
     public void deleteWish(int wishId) {
-        wishes.removeIf(w -> w.getId() == wishId);
-        saveWishes();
+        int[] held = lockOwners(null, () -> committedWishOwner(wishId));
+        try {
+            snapshotDirty = true;
+            if (pin().getWish(wishId) == null) {
+                return;
+            }
+            commit(() -> {
+                wishes.remove(wishId);
+                touched(Transaction.wishKey(wishId));
+            });
+            writer.delete(wishesJournal, String.valueOf(wishId));
+        } finally {
+            stripes.unlockWrite(held);
+        }
+        writer.committed();
     }
 
     public int getNextWishId() {
-        return wishes.stream()
-                .mapToInt(Wish::getId)
-                .max()
-                .orElse(0) + 1;
+        return sequences.next(WISH_SEQUENCE);
     }
 
     // ========== ACHIEVEMENT OPERATIONS ==========
-    private List<Achievement> loadAchievements() {
-        List<Achievement> achievementList = new ArrayList<>();
-        try (BufferedReader reader = Files.newBufferedReader(Paths.get(ACHIEVEMENTS_FILE))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (!line.isEmpty()) {
-                    try {
-                        achievementList.add(Achievement.fromFileString(line));
-                    } catch (Exception e) {
-                        System.err.println("Error parsing achievement: " + line + " - " + e.getMessage());
-                    }
-                }
-            }
+    private SnapshotMap<Integer, Achievement> loadAchievements() {
+        SnapshotMap<Integer, Achievement> achievementMap = new SnapshotMap<>();
+        try {
+            achievementsJournal.load(Achievement::read, achievement -> achievementMap.put(achievement.getId(), achievement),
+                    key -> achievementMap.remove(Integer.parseInt(key)),
+                    (line, e) -> System.err.println("Error parsing achievement: " + line + " - " + e.getMessage()));
         } catch (IOException e) {
             System.err.println("Error loading achievements: " + e.getMessage());
         }
-        return achievementList;
+        return achievementMap;
     }
 
     public List<Achievement> getAchievements() {
-        return new ArrayList<>(achievements);
+        return pin().getAchievements();
     }
 
+    // Achievements belong to no kid: the stripe is picked by id
     public void saveAchievement(Achievement achievement) {
-        achievements.add(achievement);
-        saveAchievements();
+        int[] held = stripes.lockWrite(achievement.getId());
+        try {
+            snapshotDirty = true;
+            Achievement committed = achievement.copy();
+            commit(() -> achievements.put(committed.getId(), committed));
+            sequences.observe(ACHIEVEMENT_SEQUENCE, achievement.getId());
+            writer.upsert(achievementsJournal, committed.toFileString());
+        } finally {
+            stripes.unlockWrite(held);
+        }
+        writer.committed();
     }
 
+    // Full rewrite of Achievements.txt (also drops the Achievements log segments)
     public void saveAchievements() {
-        try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(ACHIEVEMENTS_FILE))) {
-            for (Achievement achievement : achievements) {
-                writer.write(achievement.toFileString());
-                writer.newLine();
-            }
+        stripes.lockAll();
+        directoryLock.lock();
+        try {
+            snapshotDirty = true;
+            catchUp();
+            achievementsJournal.checkpoint(achievements.values(), Achievement::write);
         } catch (IOException e) {
             System.err.println("Error saving achievements: " + e.getMessage());
+        } finally {
+            directoryLock.unlock();
+            stripes.unlockAll();
         }
     }
 
     public int getNextAchievementId() {
-        return achievements.stream()
-                .mapToInt(Achievement::getId)
-                .max()
-                .orElse(0) + 1;
+        return sequences.next(ACHIEVEMENT_SEQUENCE);
+    }
+
+    // ========== TRANSACTIONS ==========
+    // Runs work against private copies and commits every user, task and wish it saved
+    // together: one new DataVersion, then (on the writer thread) one forced write to
+    // Transactions.log before the entity journals. Records the work read or saved are checked when it commits; if another
+    // save changed one of them in the meantime, nothing is applied and the work runs again
+    // on fresh copies (up to -Dkidtask.transactionAttempts times). The commit only holds
+    // the stripes of the kids involved, so transactions for different kids do not wait for
+    // each other.
+    public <T> T runInTransaction(Transaction.Work<T> work) {
+        for (int attempt = 1; ; attempt++) {
+            Transaction tx = new Transaction(this);
+            T result = work.run(tx);
+            if (commitTransaction(tx)) {
+                writer.committed();
+                return result;
+            }
+            if (attempt >= transactionAttempts) {
+                throw new ConcurrentModificationException("Transaction still conflicting after " + attempt + " attempts");
+            }
+        }
+    }
+
+    private boolean commitTransaction(Transaction tx) {
+        if (!tx.hasChanges()) {
+            return true;
+        }
+        int[] held = stripes.lockWrite(tx.getOwners().toArray());
+        try {
+            // Stripe'lar tutulurken bu kayıtları kimse değiştiremez; sürümler hâlâ aynıysa
+            // okunanlar güncel demektir
+            for (Map.Entry<String, Long> read : tx.getReadVersions().entrySet()) {
+                if (recordVersion(read.getKey()) != read.getValue()) {
+                    return false;
+                }
+            }
+            List<User> savedUsers = tx.getSavedUsers();
+            List<Task> savedTasks = tx.getSavedTasks();
+            Map<Integer, Wish> savedWishes = tx.getSavedWishes();
+            List<TransactionLog.Entry> entries = new ArrayList<>();
+            for (User user : savedUsers) {
+                entries.add(TransactionLog.Entry.upsert(USERS_ENTITY, user.toFileString()));
+            }
+            for (Task task : savedTasks) {
+                entries.add(TransactionLog.Entry.upsert(TASKS_ENTITY, task.toFileString()));
+            }
+            for (Map.Entry<Integer, Wish> wish : savedWishes.entrySet()) {
+                entries.add(wish.getValue() == null
+                        ? TransactionLog.Entry.delete(WISHES_ENTITY, String.valueOf(wish.getKey()))
+                        : TransactionLog.Entry.upsert(WISHES_ENTITY, wish.getValue().toFileString()));
+            }
+            snapshotDirty = true;
+            boolean heapTasks = pin().hasTasks();
+            commit(() -> {
+                for (User user : savedUsers) {
+                    users.put(user.getUsername(), user.copy());
+                    touched(Transaction.userKey(user.getUsername()));
+                }
+                for (Task task : savedTasks) {
+                    tasks.put(heapTasks ? task.copy() : task);
+                    taskIndex.update(task);
+                    touched(Transaction.taskKey(task.getId()));
+                }
+                for (Map.Entry<Integer, Wish> wish : savedWishes.entrySet()) {
+                    if (wish.getValue() == null) {
+                        wishes.remove(wish.getKey());
+                    } else {
+                        wishes.put(wish.getKey(), wish.getValue().copy());
+                    }
+                    touched(Transaction.wishKey(wish.getKey()));
+                }
+                verifyAggregates("transaction");
+            });
+            savedTasks.forEach(task -> sequences.observe(TASK_SEQUENCE, task.getId()));
+            savedWishes.keySet().forEach(id -> sequences.observe(WISH_SEQUENCE, id));
+            // The writer logs the batch to Transactions.log before any of it reaches a journal
+            writer.transaction(entries, () -> {
+                for (TransactionLog.Entry entry : entries) {
+                    JournalFile journal = journalFor(entry.getEntity());
+                    if (journal == tasksJournal && mappedTasks != null) {
+                        continue;
+                    }
+                    if (entry.isDelete()) {
+                        writer.delete(journal, entry.getRecord());
+                    } else {
+                        writer.upsert(journal, entry.getRecord());
+                    }
+                }
+                if (mappedTasks != null) {
+                    savedTasks.forEach(task -> writer.writeMapped(task.copy()));
+                }
+            });
+            return true;
+        } finally {
+            stripes.unlockWrite(held);
+        }
+    }
+
+    private JournalFile journalFor(String entity) {
+        switch (entity) {
+            case USERS_ENTITY:
+                return usersJournal;
+            case TASKS_ENTITY:
+                return tasksJournal;
+            default:
+                return wishesJournal;
+        }
+    }
+
+    // Applies batches that were logged but did not reach the journals (the app stopped
+    // in between). Returns true if there were any.
+    private boolean recoverTransactions() {
+        try {
+            List<List<TransactionLog.Entry>> pending = transactionLog.recover();
+            for (List<TransactionLog.Entry> batch : pending) {
+                for (TransactionLog.Entry entry : batch) {
+                    applyRecovered(entry);
+                }
+            }
+            // Kurtarılan kayıtlar journal'lara yazılmadan log silinmez
+            writer.flush();
+            transactionLog.reset();
+            return !pending.isEmpty();
+        } catch (IOException e) {
+            System.err.println("Error recovering transactions: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void applyRecovered(TransactionLog.Entry entry) {
+        try {
+            RecordReader in = new RecordReader(entry.getRecord());
+            switch (entry.getEntity()) {
+                case USERS_ENTITY:
+                    saveUser(User.read(in));
+                    break;
+                case TASKS_ENTITY:
+                    saveTask(Task.read(in, templates::get));
+                    break;
+                case WISHES_ENTITY:
+                    if (entry.isDelete()) {
+                        deleteWish(Integer.parseInt(entry.getRecord()));
+                    } else {
+                        saveWish(Wish.read(in));
+                    }
+                    break;
+                default:
+                    System.err.println("Unknown transaction entity: " + entry.getEntity());
+            }
+        } catch (Exception e) {
+            System.err.println("Error parsing transaction record: " + entry.getRecord() + " - " + e.getMessage());
+        }
+    }
+
+    // Records the version a transaction reads a record at, together with the record
+    <T> T readForTransaction(String key, Supplier<T> reader, Map<String, Long> readVersions) {
+        return readState(() -> {
+            readVersions.putIfAbsent(key, recordVersion(key));
+            return reader.get();
+        });
+    }
+
+    User committedUser(String username) {
+        User user = pin().getUser(username);
+        return user == null ? null : user.copy();
+    }
+
+    Task committedTask(int id) {
+        return readTask(id);
+    }
+
+    Wish committedWish(int id) {
+        Wish wish = pin().getWish(id);
+        return wish == null ? null : wish.copy();
+    }
+
+    private long recordVersion(String key) {
+        return recordVersions.getOrDefault(key, baseVersion);
+    }
+
+    // Called inside commit(): the record changes in the version about to be published
+    private void touched(String key) {
+        recordVersions.put(key, nextVersionNumber());
     }
 
     // ========== LEVEL CALCULATION ==========
@@ -316,29 +1354,20 @@ public class DataManager {
         // Level calculation based on average rating
         // Formula: level = (int)(averageRating * 2) + 1
         int newLevel = (int)(averageRating * 2) + 1;
-        if (newLevel > user.getLevel()) {
-            user.setLevel(newLevel);
-            saveUser(user);
+        int[] held = stripes.lockWrite(user.getUsername());
+        try {
+            if (newLevel > user.getLevel()) {
+                user.setLevel(newLevel);
+                saveUser(user);
+            }
+        } finally {
+            stripes.unlockWrite(held);
         }
     }
 
+    // Finalized SCHOOL tasks with a rating, read from the running totals
     public double calculateAverageRatingForUser(String username) {
-        List<Task> userTasks = tasks.stream()
-                .filter(t -> t.getAssignee().equals(username))
-                .filter(t -> t.getType() == Task.TaskType.SCHOOL)
-                .filter(t -> t.getStatus() == Task.TaskStatus.FINALIZED)
-                .filter(t -> t.getRating() > 0)
-                .collect(Collectors.toList());
-
-        if (userTasks.isEmpty()) {
-            return 0.0;
-        }
-
-        double sum = userTasks.stream()
-                .mapToInt(Task::getRating)
-                .sum();
-
-        return sum / userTasks.size();
+        return getAssigneeTotals(username).getAverageRating();
     }
 }
 
@@ -0,0 +1,234 @@
+package com.kidtask.utils;
+
+import com.kidtask.models.*;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Binary image of everything DataManager loads (data/Snapshot.bin), so a start or a
+// logout reload is one mapped bulk read instead of parsing every text file.
+//   header:  magic, version, stamps (name;size;modified) of the data files it was made from
+//   symbols: the user names, in SymbolTable id order
+//   users, templates, wishes, achievements: their text records
+//   tasks:   fixed binary fields (user ids, enum ordinals, epoch days) + title/description
+//   indexes: TaskAggregates totals and DueDateIndex keys
+// The snapshot is only used while the stamps still match the data files; any change to a
+// file (a save, another copy of the app, a manual edit) makes DataManager fall back to
+// the text files and write a new snapshot.
+final class DataSnapshot {
+    private static final int MAGIC = 0x4B54534E; // "KTSN"
+    private static final int VERSION = 2;
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final Task.TaskStatus[] STATUSES = Task.TaskStatus.values();
+    private static final Task.TaskType[] TYPES = Task.TaskType.values();
+
+    final SnapshotMap<String, User> users = new SnapshotMap<>();
+    final Map<Integer, TaskTemplate> templates = new HashMap<>();
+    final TaskStore tasks = TaskStore.create();
+    final SnapshotMap<Integer, Wish> wishes = new SnapshotMap<>();
+    final SnapshotMap<Integer, Achievement> achievements = new SnapshotMap<>();
+
+    private DataSnapshot() {
+    }
+
+    // Size and modification time of every file the data is loaded from (Sequences.txt,
+    // Transactions.log and temporary files are not part of the data)
+    static List<String> stamps(Path directory) throws IOException {
+        List<String> stamps = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.{txt,log,dat,ovf}")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.equals("Sequences.txt") || name.equals("Transactions.log")) {
+                    continue;
+                }
+                stamps.add(name + ";" + Files.size(file) + ";" + Files.getLastModifiedTime(file).toMillis());
+            }
+        }
+        Collections.sort(stamps);
+        return stamps;
+    }
+
+    static void write(Path file, List<String> stamps, Collection<User> users, Collection<TaskTemplate> templates,
+                      TaskStore tasks, Collection<Wish> wishes, Collection<Achievement> achievements,
+                      TaskAggregates aggregates, DueDateIndex dueDates) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(stamps.size());
+            for (String stamp : stamps) {
+                writeString(out, stamp);
+            }
+            SymbolTable symbols = SymbolTable.users();
+            int symbolCount = symbols.size();
+            out.writeInt(symbolCount);
+            for (int id = 0; id < symbolCount; id++) {
+                writeString(out, symbols.name(id));
+            }
+            writeRecords(out, users, User::write);
+            writeRecords(out, templates, TaskTemplate::write);
+            writeRecords(out, wishes, Wish::write);
+            writeRecords(out, achievements, Achievement::write);
+
+            out.writeInt(tasks.size());
+            IOException[] failure = new IOException[1];
+            tasks.forEach(task -> {
+                if (failure[0] != null) {
+                    return;
+                }
+                try {
+                    writeTask(out, task);
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+            aggregates.writeTo(out);
+            dueDates.writeTo(out);
+        }
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // null if there is no snapshot, it is from another version or the data files changed
+    // since it was written. The indexes are restored in place; after a null from a damaged
+    // file they may be half filled and the caller drops them.
+    static DataSnapshot read(Path file, List<String> currentStamps, TaskAggregates aggregates,
+                             DueDateIndex dueDates) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.remaining() < 8 || in.getInt() != MAGIC || in.getInt() != VERSION) {
+                return null;
+            }
+            int stampCount = in.getInt();
+            List<String> stamps = new ArrayList<>(stampCount);
+            for (int i = 0; i < stampCount; i++) {
+                stamps.add(readString(in));
+            }
+            if (!stamps.equals(currentStamps)) {
+                return null;
+            }
+            // Snapshot'taki kullanıcı id'leri bugünkü tabloyla aynı olmalı (index'ler id ile tutulur)
+            int symbolCount = in.getInt();
+            for (int id = 0; id < symbolCount; id++) {
+                if (!SymbolTable.users().internAs(readString(in), id)) {
+                    return null;
+                }
+            }
+            DataSnapshot snapshot = new DataSnapshot();
+            readRecords(in, User::read, user -> snapshot.users.put(user.getUsername(), user));
+            readRecords(in, TaskTemplate::read, template -> snapshot.templates.put(template.getId(), template));
+            readRecords(in, Wish::read, wish -> snapshot.wishes.put(wish.getId(), wish));
+            readRecords(in, Achievement::read, achievement -> snapshot.achievements.put(achievement.getId(), achievement));
+            int taskCount = in.getInt();
+            for (int i = 0; i < taskCount; i++) {
+                snapshot.tasks.put(readTask(in, snapshot.templates));
+            }
+            aggregates.readFrom(in);
+            dueDates.readFrom(in);
+            return snapshot;
+        } catch (RuntimeException e) {
+            // Bozuk/yarım dosya: metin dosyalarından yüklenir
+            System.err.println("Ignoring unreadable snapshot " + file.getFileName() + ": " + e);
+            return null;
+        }
+    }
+
+    private static void writeTask(DataOutputStream out, Task task) throws IOException {
+        out.writeInt(task.getId());
+        out.writeInt(task.getTemplateId());
+        out.writeByte(task.getStatus().ordinal());
+        out.writeInt(task.getAssigneeId());
+        out.writeInt(task.getRating());
+        if (task.getTemplate() != null) {
+            return;
+        }
+        out.writeByte(task.getType().ordinal());
+        out.writeInt(task.getCreatorId());
+        out.writeInt(task.getPoints());
+        out.writeInt(task.getDueDate() == null ? NO_DATE : (int) task.getDueDate().toEpochDay());
+        writeString(out, task.getTitle());
+        writeString(out, task.getDescription());
+    }
+
+    private static Task readTask(ByteBuffer in, Map<Integer, TaskTemplate> templates) {
+        int id = in.getInt();
+        int templateId = in.getInt();
+        Task.TaskStatus status = STATUSES[in.get()];
+        String assignee = SymbolTable.users().name(in.getInt());
+        int rating = in.getInt();
+        if (templateId != 0) {
+            TaskTemplate template = templates.get(templateId);
+            if (template == null) {
+                throw new IllegalStateException("Unknown task template " + templateId);
+            }
+            return new Task(id, template, status, assignee, rating);
+        }
+        Task.TaskType type = TYPES[in.get()];
+        String creator = SymbolTable.users().name(in.getInt());
+        int points = in.getInt();
+        int day = in.getInt();
+        LocalDate dueDate = day == NO_DATE ? null : LocalDate.ofEpochDay(day);
+        String title = readString(in);
+        String description = readString(in);
+        return new Task(id, title, description, points, status, type, assignee, creator, rating, dueDate);
+    }
+
+    private static <T> void writeRecords(DataOutputStream out, Collection<T> items, BiConsumer<T, RecordWriter> encoder)
+            throws IOException {
+        RecordWriter record = new RecordWriter();
+        out.writeInt(items.size());
+        for (T item : items) {
+            encoder.accept(item, record.begin());
+            writeString(out, record.toString());
+        }
+    }
+
+    private static <T> void readRecords(ByteBuffer in, Function<RecordReader, T> parser,
+                                        Consumer<T> onRecord) {
+        RecordReader reader = new RecordReader();
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            onRecord.accept(parser.apply(reader.reset(readString(in))));
+        }
+    }
+
+    // int byte length (-1 = null) + UTF-8; writeUTF would cap text at 64 KB
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,66 @@
+package com.kidtask.utils;
+
+import com.kidtask.models.*;
+import java.util.List;
+
+// One committed state of DataManager's users, tasks, wishes and achievements. Every
+// write publishes a new DataVersion; readers take the current one (DataManager.pin())
+// without a lock and keep reading the same state however many writes follow. Versions
+// share everything that did not change, and one that no reader holds any more is
+// simply garbage collected. The objects inside are the committed copies: read them,
+// but change a copy (getUserByUsername, getTaskById, ...) and save that.
+public final class DataVersion {
+    private final long number;
+    private final SnapshotMap.View<String, User> users;
+    // null when the task store is not versioned (columnar/off-heap)
+    private final SnapshotMap.View<Integer, Task> tasks;
+    private final SnapshotMap.View<Integer, Wish> wishes;
+    private final SnapshotMap.View<Integer, Achievement> achievements;
+
+    DataVersion(long number, SnapshotMap.View<String, User> users, SnapshotMap.View<Integer, Task> tasks,
+                SnapshotMap.View<Integer, Wish> wishes, SnapshotMap.View<Integer, Achievement> achievements) {
+        this.number = number;
+        this.users = users;
+        this.tasks = tasks;
+        this.wishes = wishes;
+        this.achievements = achievements;
+    }
+
+    // Increases by one with every commit
+    public long getNumber() {
+        return number;
+    }
+
+    public List<User> getUsers() {
+        return users.values();
+    }
+
+    public User getUser(String username) {
+        return users.get(username);
+    }
+
+    // false for the column stores: their tasks are only readable from the live store
+    public boolean hasTasks() {
+        return tasks != null;
+    }
+
+    public List<Task> getTasks() {
+        return tasks.values();
+    }
+
+    public Task getTask(int id) {
+        return tasks.get(id);
+    }
+
+    public List<Wish> getWishes() {
+        return wishes.values();
+    }
+
+    public Wish getWish(int id) {
+        return wishes.get(id);
+    }
+
+    public List<Achievement> getAchievements() {
+        return achievements.values();
+    }
+}
@@ -0,0 +1,126 @@
+package com.kidtask.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+// IntIntMap with its table in direct (off-heap) memory: key and value side by side in
+// one IntBuffer. Same probing and backward-shift delete as IntIntMap; used by
+// OffHeapTaskStore so the id -> slot lookup does not grow the Java heap either.
+final class DirectIntIntMap {
+    static final int MISSING = IntIntMap.MISSING;
+    private static final int EMPTY = Integer.MIN_VALUE;
+
+    private IntBuffer table;
+    private int capacity;
+    private int size;
+    private int mask;
+
+    DirectIntIntMap() {
+        allocate(16);
+    }
+
+    int get(int key) {
+        int i = slot(key);
+        int k;
+        while ((k = table.get(i * 2)) != EMPTY) {
+            if (k == key) {
+                return table.get(i * 2 + 1);
+            }
+            i = (i + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    void put(int key, int value) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Unsupported key: " + key);
+        }
+        int i = slot(key);
+        int k;
+        while ((k = table.get(i * 2)) != EMPTY) {
+            if (k == key) {
+                table.put(i * 2 + 1, value);
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        table.put(i * 2, key);
+        table.put(i * 2 + 1, value);
+        // Doluluk %50'yi geçince büyüt
+        if (++size * 2 > capacity) {
+            rehash(capacity * 2);
+        }
+    }
+
+    int remove(int key) {
+        int i = slot(key);
+        int k;
+        while ((k = table.get(i * 2)) != EMPTY) {
+            if (k == key) {
+                int old = table.get(i * 2 + 1);
+                shiftBack(i);
+                size--;
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Off-heap bytes held by the table
+    long sizeInBytes() {
+        return (long) capacity * 8;
+    }
+
+    private int slot(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private void shiftBack(int hole) {
+        int i = hole;
+        while (true) {
+            i = (i + 1) & mask;
+            int key = table.get(i * 2);
+            if (key == EMPTY) {
+                break;
+            }
+            int home = slot(key);
+            boolean movable = hole <= i ? (home <= hole || home > i) : (home <= hole && home > i);
+            if (movable) {
+                table.put(hole * 2, key);
+                table.put(hole * 2 + 1, table.get(i * 2 + 1));
+                hole = i;
+            }
+        }
+        table.put(hole * 2, EMPTY);
+    }
+
+    private void rehash(int newCapacity) {
+        IntBuffer old = table;
+        int oldCapacity = capacity;
+        allocate(newCapacity);
+        size = 0;
+        for (int i = 0; i < oldCapacity; i++) {
+            int key = old.get(i * 2);
+            if (key != EMPTY) {
+                put(key, old.get(i * 2 + 1));
+            }
+        }
+        // Eski tablo GC ile birlikte (Cleaner) serbest kalır
+    }
+
+    private void allocate(int newCapacity) {
+        table = ByteBuffer.allocateDirect(newCapacity * 8).order(ByteOrder.nativeOrder()).asIntBuffer();
+        for (int i = 0; i < newCapacity; i++) {
+            table.put(i * 2, EMPTY);
+        }
+        capacity = newCapacity;
+        mask = newCapacity - 1;
+    }
+}
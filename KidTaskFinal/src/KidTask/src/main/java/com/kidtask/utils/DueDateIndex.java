@@ -0,0 +1,218 @@
+package com.kidtask.utils;
+
+import com.kidtask.models.Task;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.*;
+
+// Tasks with a due date, sorted by (dueDate, id), per assignee and per task type.
+// Each task is one long key: epoch day in the high 32 bits, task id in the low 32 bits,
+// so a date range is a subSet() of the sorted set and a page continues from its last key.
+// Tasks without a due date are not indexed.
+public class DueDateIndex implements TaskIndex.Listener {
+    private final SymbolMap<NavigableSet<Long>> byAssignee = new SymbolMap<>();
+    private final Map<Task.TaskType, NavigableSet<Long>> byType = new EnumMap<>(Task.TaskType.class);
+
+    static long key(LocalDate dueDate, int id) {
+        return (dueDate.toEpochDay() << 32) | (id & 0xFFFFFFFFL);
+    }
+
+    // Smallest key on the given day
+    static long firstKey(LocalDate day) {
+        return day.toEpochDay() << 32;
+    }
+
+    static LocalDate dateOf(long key) {
+        return LocalDate.ofEpochDay(key >> 32);
+    }
+
+    static int idOf(long key) {
+        return (int) key;
+    }
+
+    // Read-only views; empty when nothing is indexed under the key
+    NavigableSet<Long> forAssignee(String assignee) {
+        return view(byAssignee.get(SymbolTable.users().find(assignee)));
+    }
+
+    NavigableSet<Long> forType(Task.TaskType type) {
+        return view(byType.get(type));
+    }
+
+    @Override
+    public void added(TaskIndex.Entry entry) {
+        if (entry.getDueDate() == null) {
+            return;
+        }
+        Long key = key(entry.getDueDate(), entry.getId());
+        byAssignee.computeIfAbsent(entry.getAssigneeId(), TreeSet::new).add(key);
+        byType.computeIfAbsent(entry.getType(), k -> new TreeSet<>()).add(key);
+    }
+
+    @Override
+    public void replaced(TaskIndex.Entry old, TaskIndex.Entry entry) {
+        if (!Objects.equals(old.getDueDate(), entry.getDueDate())
+                || old.getAssigneeId() != entry.getAssigneeId()
+                || old.getType() != entry.getType()) {
+            removed(old);
+            added(entry);
+        }
+    }
+
+    @Override
+    public void removed(TaskIndex.Entry entry) {
+        if (entry.getDueDate() == null) {
+            return;
+        }
+        long key = key(entry.getDueDate(), entry.getId());
+        NavigableSet<Long> assigneeKeys = byAssignee.get(entry.getAssigneeId());
+        if (assigneeKeys != null) {
+            assigneeKeys.remove(key);
+            if (assigneeKeys.isEmpty()) {
+                byAssignee.remove(entry.getAssigneeId());
+            }
+        }
+        removeKey(byType, entry.getType(), key);
+    }
+
+    @Override
+    public void cleared() {
+        byAssignee.clear();
+        byType.clear();
+    }
+
+    // Snapshot encoding: per assignee (SymbolTable id) and per type (ordinal) the keys in
+    // ascending order; reading builds each TreeSet from the sorted keys in linear time
+    void writeTo(DataOutputStream out) throws IOException {
+        int assignees = 0;
+        for (int user = SymbolTable.NONE; user < byAssignee.symbolLimit(); user++) {
+            if (byAssignee.get(user) != null) {
+                assignees++;
+            }
+        }
+        out.writeInt(assignees);
+        for (int user = SymbolTable.NONE; user < byAssignee.symbolLimit(); user++) {
+            NavigableSet<Long> keys = byAssignee.get(user);
+            if (keys != null) {
+                out.writeInt(user);
+                writeKeys(out, keys);
+            }
+        }
+        out.writeInt(byType.size());
+        for (Map.Entry<Task.TaskType, NavigableSet<Long>> entry : byType.entrySet()) {
+            out.writeInt(entry.getKey().ordinal());
+            writeKeys(out, entry.getValue());
+        }
+    }
+
+    void readFrom(ByteBuffer in) {
+        cleared();
+        int assignees = in.getInt();
+        for (int i = 0; i < assignees; i++) {
+            int user = in.getInt();
+            NavigableSet<Long> keys = readKeys(in);
+            byAssignee.computeIfAbsent(user, () -> keys);
+        }
+        Task.TaskType[] types = Task.TaskType.values();
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            Task.TaskType type = types[in.getInt()];
+            byType.put(type, readKeys(in));
+        }
+    }
+
+    private static void writeKeys(DataOutputStream out, NavigableSet<Long> keys) throws IOException {
+        out.writeInt(keys.size());
+        for (long key : keys) {
+            out.writeLong(key);
+        }
+    }
+
+    private static NavigableSet<Long> readKeys(ByteBuffer in) {
+        long[] keys = new long[in.getInt()];
+        in.asLongBuffer().get(keys);
+        in.position(in.position() + keys.length * 8);
+        // TreeSet(SortedSet) ağacı sıralı girdiden tek geçişte kurar
+        return new TreeSet<>(new SortedKeys(keys));
+    }
+
+    // Just enough of a SortedSet over an ascending long[] for the TreeSet constructor
+    private static final class SortedKeys extends AbstractSet<Long> implements SortedSet<Long> {
+        private final long[] keys;
+
+        private SortedKeys(long[] keys) {
+            this.keys = keys;
+        }
+
+        @Override
+        public Iterator<Long> iterator() {
+            return new Iterator<Long>() {
+                private int next;
+
+                @Override
+                public boolean hasNext() {
+                    return next < keys.length;
+                }
+
+                @Override
+                public Long next() {
+                    if (next >= keys.length) {
+                        throw new NoSuchElementException();
+                    }
+                    return keys[next++];
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return keys.length;
+        }
+
+        @Override
+        public Comparator<? super Long> comparator() {
+            return null;
+        }
+
+        @Override
+        public SortedSet<Long> subSet(Long fromElement, Long toElement) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SortedSet<Long> headSet(Long toElement) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SortedSet<Long> tailSet(Long fromElement) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Long first() {
+            return keys[0];
+        }
+
+        @Override
+        public Long last() {
+            return keys[keys.length - 1];
+        }
+    }
+
+    private static <K> void removeKey(Map<K, NavigableSet<Long>> index, K indexKey, long key) {
+        NavigableSet<Long> keys = index.get(indexKey);
+        if (keys != null) {
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                index.remove(indexKey);
+            }
+        }
+    }
+
+    private static NavigableSet<Long> view(NavigableSet<Long> keys) {
+        return keys == null ? Collections.emptyNavigableSet() : Collections.unmodifiableNavigableSet(keys);
+    }
+}
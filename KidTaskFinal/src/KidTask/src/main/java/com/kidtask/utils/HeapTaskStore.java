@@ -0,0 +1,51 @@
+package com.kidtask.utils;
+
+import com.kidtask.models.Task;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+// One Task object per task, in insertion order
+public class HeapTaskStore implements TaskStore {
+    private final SnapshotMap<Integer, Task> tasks = new SnapshotMap<>();
+
+    @Override
+    public Task get(int id) {
+        return tasks.get(id);
+    }
+
+    @Override
+    public void put(Task task) {
+        tasks.put(task.getId(), task);
+    }
+
+    @Override
+    public void remove(int id) {
+        tasks.remove(id);
+    }
+
+    @Override
+    public int size() {
+        return tasks.size();
+    }
+
+    @Override
+    public Collection<Task> values() {
+        return tasks.snapshot();
+    }
+
+    @Override
+    public List<Task> snapshot() {
+        return tasks.snapshot();
+    }
+
+    @Override
+    public SnapshotMap.View<Integer, Task> view() {
+        return tasks.view();
+    }
+
+    @Override
+    public void forEach(Consumer<Task> action) {
+        tasks.forEachValue(action);
+    }
+}
@@ -0,0 +1,118 @@
+package com.kidtask.utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Monotonic id counters kept in data/Sequences.txt, one "name;value" line per counter.
+// Ids are reserved in blocks: the file stores the end of the current block, so it is
+// rewritten once per BLOCK_SIZE allocations and ids are never handed out twice, even
+// after a restart or after the record with the highest id was deleted. Processes sharing
+// the data directory reserve their blocks under the directory lock and re-read the file
+// first, so each one gets its own block.
+public class IdSequences {
+    private static final int BLOCK_SIZE = 100;
+
+    private final Path path;
+    private final DataDirectoryLock directoryLock;
+    private final Map<String, Integer> nextIds = new HashMap<>();
+    private final Map<String, Integer> reservedUpTo = new HashMap<>();
+
+    public IdSequences(String file, DataDirectoryLock directoryLock) {
+        this.path = Paths.get(file);
+        this.directoryLock = directoryLock;
+    }
+
+    public synchronized void load() {
+        nextIds.clear();
+        reservedUpTo.clear();
+        for (Map.Entry<String, Integer> saved : readFile().entrySet()) {
+            // Önceki çalışmada ayrılan bloğun sonu: ondan önceki id'ler kullanılmış sayılır
+            nextIds.put(saved.getKey(), saved.getValue());
+            reservedUpTo.put(saved.getKey(), saved.getValue());
+        }
+    }
+
+    // name -> end of the last block reserved by any process
+    private Map<String, Integer> readFile() {
+        Map<String, Integer> saved = new HashMap<>();
+        if (!Files.exists(path)) {
+            return saved;
+        }
+        try {
+            List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+            for (String line : lines) {
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                try {
+                    RecordReader in = new RecordReader(line);
+                    saved.put(in.nextString(), in.nextInt());
+                } catch (Exception e) {
+                    System.err.println("Error parsing sequence: " + line + " - " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error loading sequences: " + e.getMessage());
+        }
+        return saved;
+    }
+
+    // Makes sure the counter stays above an id that already exists in the data
+    public synchronized void observe(String name, int usedId) {
+        if (usedId >= nextIds.getOrDefault(name, 1)) {
+            nextIds.put(name, usedId + 1);
+        }
+    }
+
+    public int next(String name) {
+        synchronized (this) {
+            int id = nextIds.getOrDefault(name, 1);
+            if (id < reservedUpTo.getOrDefault(name, 0)) {
+                nextIds.put(name, id + 1);
+                return id;
+            }
+        }
+        // Blok bitti: dosya kilit altında yeniden okunur, diğer süreçlerin blokları atlanır
+        directoryLock.lock();
+        try {
+            synchronized (this) {
+                Map<String, Integer> saved = readFile();
+                int id = Math.max(nextIds.getOrDefault(name, 1), saved.getOrDefault(name, 0));
+                nextIds.put(name, id + 1);
+                reservedUpTo.put(name, id + BLOCK_SIZE);
+                // Diğer sayaçlarda dosyadaki (başka süreçlerin) blok sonları korunur
+                reservedUpTo.forEach((counter, end) -> saved.merge(counter, end, Math::max));
+                save(saved);
+                return id;
+            }
+        } finally {
+            directoryLock.unlock();
+        }
+    }
+
+    private void save(Map<String, Integer> blockEnds) {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        RecordWriter record = new RecordWriter();
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, Integer> entry : blockEnds.entrySet()) {
+                    record.begin().writeString(entry.getKey()).writeInt(entry.getValue()).writeTo(writer);
+                    writer.newLine();
+                }
+            }
+            try {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.err.println("Error saving sequences: " + e.getMessage());
+        }
+    }
+}
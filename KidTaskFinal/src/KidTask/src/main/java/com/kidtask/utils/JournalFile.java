@@ -0,0 +1,555 @@
+package com.kidtask.utils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Snapshot file + segmented append-only log for one entity type.
+// Snapshot: one record per line (Tasks.txt etc.), key is the first field
+// Segments: Tasks-000001.log, Tasks-000002.log, ... each line is
+//   "U;<record>" for upsert or "D;<key>" for delete
+// Only the newest segment is written to. When it grows past the size limit a new
+// one is started and the sealed ones are merged into the snapshot by a background thread.
+// The file sizes this process last read or wrote are remembered, so changes() can tell
+// whether another process changed the files and readTail() can read only its new lines.
+// Processes sharing the data directory append to the same newest segment, one batch at
+// a time under the directory lock, so the order of the lines is the commit order for
+// everyone. A rewrite of the snapshot (checkpoint, compaction) also happens under the
+// lock and leaves a <Base>.merged note: the snapshot it replaced and the segments it
+// took in. A process that had read exactly those keeps its records instead of loading
+// the entity again.
+public class JournalFile {
+    // What changed on disk since this process last read or wrote the files
+    public enum Change {
+        NONE,
+        // Only new lines at the end of segments (or new segments): readTail() reads them
+        TAIL,
+        // Snapshot replaced, or segments shrunk or removed (checkpoint/compaction): load() again
+        FULL
+    }
+
+    private static final String UPSERT_PREFIX = ParallelRecordLoader.UPSERT_PREFIX;
+    private static final String DELETE_PREFIX = ParallelRecordLoader.DELETE_PREFIX;
+    private static final long SEGMENT_BYTES = Long.getLong("kidtask.segmentBytes", 1024 * 1024);
+    // Bu kadar mühürlü segment birikirse snapshot boyutuna bakmadan sıkıştır
+    private static final int MAX_SEALED_SEGMENTS = 8;
+
+    // Tek compactor thread tüm entity dosyaları için yeterli
+    private static final ExecutorService COMPACTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "kidtask-log-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Path snapshotPath;
+    private final Path directory;
+    private final String baseName;
+    private final Pattern segmentPattern;
+    private final Path mergedPath;
+    private final DataDirectoryLock directoryLock;
+
+    private final List<Path> sealedSegments = new ArrayList<>();
+    private Path activeSegment;
+    private long activeBytes;
+    private int nextSegmentNumber = 1;
+    private BufferedWriter logWriter;
+    // checkpoint() her çağrıldığında artar; eski bir compaction sonucu bu yüzden kullanılmaz
+    private long generation;
+    private boolean compactionScheduled;
+    // Snapshot stamp and bytes of every segment as of our last read or write
+    private long knownSnapshotSize = -1;
+    private long knownSnapshotModified;
+    private final Map<Path, Long> knownSegments = new HashMap<>();
+    // Our lines written after another process's lines we have not read yet: readTail()
+    // replays them in place, so the later line of a record wins in every process
+    private final Map<Path, List<long[]>> ownRanges = new HashMap<>();
+    // The batch being appended: where it started in the active segment, and whether we
+    // had read the segment up to there
+    private long appendStart;
+    private boolean appendCaughtUp;
+
+    public JournalFile(String snapshotFile, DataDirectoryLock directoryLock) {
+        this.snapshotPath = Paths.get(snapshotFile).toAbsolutePath();
+        this.directory = snapshotPath.getParent();
+        String fileName = snapshotPath.getFileName().toString();
+        this.baseName = fileName.endsWith(".txt") ? fileName.substring(0, fileName.length() - 4) : fileName;
+        this.segmentPattern = Pattern.compile(Pattern.quote(baseName) + "-(\\d+)\\.log");
+        this.mergedPath = directory.resolve(baseName + ".merged");
+        this.directoryLock = directoryLock;
+    }
+
+    public Path getSnapshotPath() {
+        return snapshotPath;
+    }
+
+    // True for the snapshot and the log segments of this entity (names in the data directory)
+    public boolean owns(String fileName) {
+        return fileName.equals(snapshotPath.getFileName().toString()) || fileName.equals(baseName + ".log")
+                || segmentPattern.matcher(fileName).matches();
+    }
+
+    // Replays the snapshot and then every segment in write order.
+    // Large files are parsed in parallel chunks, callbacks still run in file order on this thread.
+    public synchronized <T> void load(Function<RecordReader, T> parser, Consumer<T> onUpsert, Consumer<String> onDelete,
+                                      BiConsumer<String, Exception> onError) throws IOException {
+        // Boyutlar okumadan önce alınır: okuma sırasında eklenen satırlar bir sonraki
+        // readTail'de tekrar okunur (upsert/delete iki kez uygulanınca sonuç değişmez)
+        List<Path> segments = listFiles();
+        ParallelRecordLoader.load(snapshotPath, false, parser, onUpsert, onDelete, onError);
+        for (Path segment : segments) {
+            ParallelRecordLoader.load(segment, true, parser, onUpsert, onDelete, onError);
+        }
+        scheduleCompactionIfNeeded();
+    }
+
+    // The records in memory are the files' current content (loaded some other way, e.g.
+    // from Snapshot.bin): only later changes count for changes() and readTail()
+    public synchronized void markLoaded() throws IOException {
+        listFiles();
+    }
+
+    // Every segment, oldest first; all of them count as read
+    private List<Path> listFiles() throws IOException {
+        closeWriter();
+        List<Path> segments = listSegments();
+        setSealed(segments);
+        activeSegment = null;
+        activeBytes = 0;
+        rememberSnapshot();
+        knownSegments.clear();
+        ownRanges.clear();
+        for (Path segment : segments) {
+            knownSegments.put(segment, sizeOf(segment));
+        }
+        return segments;
+    }
+
+    public void appendUpsert(String record) throws IOException {
+        appendAll(Collections.singletonMap(keyOf(record), record));
+    }
+
+    public void appendDelete(String key) throws IOException {
+        appendAll(Collections.singletonMap(key, null));
+    }
+
+    // Several changes with one flush: key -> record, or null to delete the key
+    public void appendAll(Map<String, String> changes) throws IOException {
+        directoryLock.lock();
+        try {
+            synchronized (this) {
+                try {
+                    openNewestSegment();
+                    for (Map.Entry<String, String> change : changes.entrySet()) {
+                        writeLine(change.getValue() == null
+                                ? DELETE_PREFIX + change.getKey() : UPSERT_PREFIX + change.getValue());
+                    }
+                } finally {
+                    // Her yazmadan sonra kapatılır: segment bu arada başka bir süreç tarafından silinebilir
+                    closeWriter();
+                    recordAppend();
+                }
+                scheduleCompactionIfNeeded();
+            }
+        } finally {
+            directoryLock.unlock();
+        }
+    }
+
+    // Segment dolunca kapatılır (close flush eder), yeni satırlar bir sonrakine gider
+    private void writeLine(String line) throws IOException {
+        if (logWriter == null) {
+            openNewSegment();
+        }
+        logWriter.write(line);
+        logWriter.newLine();
+        activeBytes += line.getBytes(StandardCharsets.UTF_8).length + System.lineSeparator().length();
+        if (activeBytes >= SEGMENT_BYTES) {
+            rotate();
+        }
+    }
+
+    // Opens the newest segment of any process for appending, or starts a new one if it
+    // is full. The directory lock is held, so no other process writes until we are done.
+    private void openNewestSegment() throws IOException {
+        List<Path> segments = listSegments();
+        Path newest = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (newest == null || newest.getFileName().toString().equals(baseName + ".log")
+                || sizeOf(newest) >= SEGMENT_BYTES) {
+            setSealed(segments);
+            openNewSegment();
+            return;
+        }
+        setSealed(segments.subList(0, segments.size() - 1));
+        activeSegment = newest;
+        openWriter();
+    }
+
+    private void openNewSegment() throws IOException {
+        do {
+            activeSegment = directory.resolve(String.format("%s-%06d.log", baseName, nextSegmentNumber++));
+        } while (Files.exists(activeSegment));
+        openWriter();
+    }
+
+    private void openWriter() throws IOException {
+        logWriter = Files.newBufferedWriter(activeSegment, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        activeBytes = Files.size(activeSegment);
+        appendStart = activeBytes;
+        appendCaughtUp = knownSegments.getOrDefault(activeSegment, 0L) == appendStart;
+    }
+
+    // After our lines reach the file: if we had read everything before them they count
+    // as read, otherwise readTail() reads them again after the other process's lines
+    private void recordAppend() {
+        if (activeSegment == null || activeBytes == appendStart) {
+            return;
+        }
+        if (appendCaughtUp) {
+            knownSegments.put(activeSegment, activeBytes);
+        } else {
+            ownRanges.computeIfAbsent(activeSegment, k -> new ArrayList<>()).add(new long[]{appendStart, activeBytes});
+        }
+        appendStart = activeBytes;
+    }
+
+    private void rotate() throws IOException {
+        closeWriter();
+        recordAppend();
+        sealedSegments.add(activeSegment);
+        activeSegment = null;
+        activeBytes = 0;
+    }
+
+    private void setSealed(List<Path> segments) {
+        sealedSegments.clear();
+        sealedSegments.addAll(segments);
+    }
+
+    // Writes a fresh snapshot from memory atomically and drops every segment.
+    // If we crash before the segments are deleted, replaying them over the new
+    // snapshot gives the same state (last record per key wins), so the order is safe.
+    // Call with the directory lock held, after reading what other processes appended
+    // (readTail): the items are then everything in the files.
+    public synchronized <T> void checkpoint(Collection<T> items, BiConsumer<T, RecordWriter> encoder) throws IOException {
+        long[] replaced = {sizeOf(snapshotPath), modifiedOf(snapshotPath)};
+        List<Path> segments = listSegments();
+        Path tmp = snapshotPath.resolveSibling(baseName + ".txt.tmp");
+        RecordWriter record = new RecordWriter();
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (T item : items) {
+                encoder.accept(item, record.begin());
+                record.writeTo(writer);
+                writer.newLine();
+            }
+        }
+        installSnapshot(tmp);
+        writeMergedNote(replaced, segments);
+        closeWriter();
+        for (Path segment : segments) {
+            Files.deleteIfExists(segment);
+        }
+        sealedSegments.clear();
+        activeSegment = null;
+        activeBytes = 0;
+        generation++;
+        rememberSnapshot();
+        knownSegments.clear();
+        ownRanges.clear();
+    }
+
+    // Compares the files with what this process last read or wrote; only stats them
+    // (and reads the .merged note if the snapshot was replaced)
+    public synchronized Change changes() throws IOException {
+        if ((knownSnapshotSize != sizeOf(snapshotPath) || knownSnapshotModified != modifiedOf(snapshotPath))
+                && !acceptMerge()) {
+            return Change.FULL;
+        }
+        boolean grown = false;
+        for (Map.Entry<Path, Long> known : knownSegments.entrySet()) {
+            if (!Files.exists(known.getKey())) {
+                return Change.FULL;
+            }
+            long size = Files.size(known.getKey());
+            if (size < known.getValue()) {
+                return Change.FULL;
+            }
+            grown |= size > known.getValue();
+        }
+        for (Path segment : listSegments()) {
+            grown |= !knownSegments.containsKey(segment);
+        }
+        return grown ? Change.TAIL : Change.NONE;
+    }
+
+    // Replays only the lines added to the segments since our last read or write, in
+    // file order, our own lines among them included, so the later line of a record wins.
+    // A record we wrote over another process's change we had not read yet is reported.
+    public synchronized <T> void readTail(Function<RecordReader, T> parser, Consumer<T> onUpsert,
+                                          Consumer<String> onDelete, BiConsumer<String, Exception> onError)
+            throws IOException {
+        Function<RecordReader, Keyed<T>> keyed = in -> new Keyed<>(keyOf(in.toString()), parser.apply(in));
+        Map<String, Boolean> lastWriterOwn = new HashMap<>();
+        Set<String> conflicts = new LinkedHashSet<>();
+        for (Path segment : listSegments()) {
+            long from = knownSegments.getOrDefault(segment, 0L);
+            for (long[] own : ownRanges.getOrDefault(segment, Collections.emptyList())) {
+                from = readRange(segment, from, own[0], false, keyed, onUpsert, onDelete, onError, lastWriterOwn,
+                        conflicts);
+                from = readRange(segment, from, own[1], true, keyed, onUpsert, onDelete, onError, lastWriterOwn,
+                        conflicts);
+            }
+            knownSegments.put(segment, readRange(segment, from, Long.MAX_VALUE, false, keyed, onUpsert, onDelete,
+                    onError, lastWriterOwn, conflicts));
+        }
+        for (String key : conflicts) {
+            System.err.println("Conflict in " + snapshotPath.getFileName() + ": record " + key
+                    + " was changed by another KidTask session before this session's change; keeping "
+                    + (lastWriterOwn.get(key) ? "this session's change" : "the later change of the other session"));
+        }
+        ownRanges.clear();
+    }
+
+    private <T> long readRange(Path segment, long from, long to, boolean own, Function<RecordReader, Keyed<T>> keyed,
+                               Consumer<T> onUpsert, Consumer<String> onDelete, BiConsumer<String, Exception> onError,
+                               Map<String, Boolean> lastWriterOwn, Set<String> conflicts) throws IOException {
+        if (from >= to) {
+            return from;
+        }
+        Consumer<String> changed = key -> {
+            // Başka sürecin satırı bizimkinden önce ama biz onu okumadan yazdık
+            if (own && Boolean.FALSE.equals(lastWriterOwn.get(key))) {
+                conflicts.add(key);
+            }
+            lastWriterOwn.put(key, own);
+        };
+        return ParallelRecordLoader.loadTail(segment, from, to, keyed, record -> {
+            changed.accept(record.key);
+            onUpsert.accept(record.value);
+        }, key -> {
+            changed.accept(key);
+            onDelete.accept(key);
+        }, onError);
+    }
+
+    private static final class Keyed<T> {
+        final String key;
+        final T value;
+
+        Keyed(String key, T value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    // The snapshot was replaced. If the rewrite took in exactly the snapshot and segment
+    // bytes we had read, our records already match it and only the stamps move on.
+    private boolean acceptMerge() {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(mergedPath, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return false;
+        }
+        try {
+            RecordReader stamps = new RecordReader(lines.get(0));
+            long replacedSize = Long.parseLong(stamps.nextString());
+            long replacedModified = Long.parseLong(stamps.nextString());
+            long size = Long.parseLong(stamps.nextString());
+            long modified = Long.parseLong(stamps.nextString());
+            if (replacedSize != knownSnapshotSize || replacedModified != knownSnapshotModified
+                    || size != sizeOf(snapshotPath) || modified != modifiedOf(snapshotPath)) {
+                return false;
+            }
+            List<Path> merged = new ArrayList<>();
+            for (String line : lines.subList(1, lines.size())) {
+                RecordReader in = new RecordReader(line);
+                Path segment = directory.resolve(in.nextString());
+                if (knownSegments.getOrDefault(segment, 0L) != Long.parseLong(in.nextString())) {
+                    return false;
+                }
+                merged.add(segment);
+            }
+            knownSnapshotSize = size;
+            knownSnapshotModified = modified;
+            for (Path segment : merged) {
+                knownSegments.remove(segment);
+                ownRanges.remove(segment);
+            }
+            return true;
+        } catch (RuntimeException e) {
+            // Yarım ya da bozuk not: entity baştan okunur
+            return false;
+        }
+    }
+
+    // <replaced size>;<replaced modified>;<new size>;<new modified>, then <segment>;<bytes>
+    // for every segment merged in
+    private void writeMergedNote(long[] replaced, List<Path> segments) throws IOException {
+        StringBuilder note = new StringBuilder();
+        note.append(replaced[0]).append(';').append(replaced[1]).append(';')
+                .append(sizeOf(snapshotPath)).append(';').append(modifiedOf(snapshotPath)).append('\n');
+        for (Path segment : segments) {
+            note.append(segment.getFileName()).append(';').append(sizeOf(segment)).append('\n');
+        }
+        Path tmp = mergedPath.resolveSibling(mergedPath.getFileName() + ".tmp");
+        Files.write(tmp, note.toString().getBytes(StandardCharsets.UTF_8));
+        installFile(tmp, mergedPath);
+    }
+
+    private void rememberSnapshot() {
+        knownSnapshotSize = sizeOf(snapshotPath);
+        knownSnapshotModified = modifiedOf(snapshotPath);
+    }
+
+    private void scheduleCompactionIfNeeded() {
+        if (compactionScheduled || sealedSegments.isEmpty()) {
+            return;
+        }
+        long sealedBytes = 0;
+        for (Path segment : sealedSegments) {
+            sealedBytes += sizeOf(segment);
+        }
+        // Segmentler snapshot'ın yarısına ulaşınca birleştir: yazma maliyeti amortized O(1) kalır
+        if (sealedSegments.size() >= MAX_SEALED_SEGMENTS || sealedBytes * 2 >= sizeOf(snapshotPath)) {
+            compactionScheduled = true;
+            COMPACTOR.execute(this::compact);
+        }
+    }
+
+    // Runs on the compactor thread. Reading and merging happens without any lock, so
+    // appends and in-memory reads continue while the new snapshot is built. Only segments
+    // older than the newest one are merged: nobody appends to those any more.
+    private void compact() {
+        List<Path> toMerge;
+        long startGeneration;
+        long[] replaced;
+        synchronized (this) {
+            startGeneration = generation;
+        }
+        Path tmp = snapshotPath.resolveSibling(baseName + ".txt.compact");
+        try {
+            List<Path> segments = listSegments();
+            toMerge = segments.isEmpty() ? segments : segments.subList(0, segments.size() - 1);
+            replaced = new long[]{sizeOf(snapshotPath), modifiedOf(snapshotPath)};
+            if (toMerge.isEmpty()) {
+                return;
+            }
+            Map<String, String> live = new LinkedHashMap<>();
+            Consumer<String> keep = record -> live.put(keyOf(record), record);
+            BiConsumer<String, Exception> ignore = (line, e) -> { };
+            ParallelRecordLoader.load(snapshotPath, false, RecordReader::toString, keep, live::remove, ignore);
+            for (Path segment : toMerge) {
+                ParallelRecordLoader.load(segment, true, RecordReader::toString, keep, live::remove, ignore);
+            }
+            writeRecords(live.values(), tmp);
+            directoryLock.lock();
+            try {
+                synchronized (this) {
+                    if (generation != startGeneration || replaced[0] != sizeOf(snapshotPath)
+                            || replaced[1] != modifiedOf(snapshotPath) || !toMerge.stream().allMatch(Files::exists)) {
+                        // Bu arada checkpoint ya da başka bir sürecin compaction'ı yapıldı, sonuç geçersiz
+                        Files.deleteIfExists(tmp);
+                        return;
+                    }
+                    installSnapshot(tmp);
+                    writeMergedNote(replaced, toMerge);
+                    for (Path segment : toMerge) {
+                        Files.deleteIfExists(segment);
+                    }
+                    sealedSegments.removeAll(toMerge);
+                    // Stamp'ler burada ilerletilmez: okumadığımız satırlar birleştiyse changes() FULL der
+                }
+            } finally {
+                directoryLock.unlock();
+            }
+        } catch (IOException e) {
+            System.err.println("Error compacting " + snapshotPath.getFileName() + ": " + e.getMessage());
+        } finally {
+            synchronized (this) {
+                compactionScheduled = false;
+                scheduleCompactionIfNeeded();
+            }
+        }
+    }
+
+    private static void writeRecords(Iterable<String> records, Path tmp) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (String record : records) {
+                writer.write(record);
+                writer.newLine();
+            }
+        }
+    }
+
+    // Atomic rename, so a reader opening the snapshot sees either the old or the new file
+    private void installSnapshot(Path tmp) throws IOException {
+        installFile(tmp, snapshotPath);
+    }
+
+    private static void installFile(Path tmp, Path target) throws IOException {
+        try {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Every record format starts with its key (id or username)
+    static String keyOf(String record) {
+        int separator = record.indexOf(';');
+        return separator < 0 ? record : record.substring(0, separator);
+    }
+
+    private List<Path> listSegments() throws IOException {
+        TreeMap<Integer, Path> segments = new TreeMap<>();
+        // Eski tek-dosya log'u (Tasks.log) en eski segment olarak kabul et
+        Path legacyLog = directory.resolve(baseName + ".log");
+        if (Files.exists(legacyLog)) {
+            segments.put(0, legacyLog);
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, baseName + "-*.log")) {
+            for (Path path : stream) {
+                Matcher matcher = segmentPattern.matcher(path.getFileName().toString());
+                if (matcher.matches()) {
+                    segments.put(Integer.parseInt(matcher.group(1)), path);
+                }
+            }
+        }
+        if (!segments.isEmpty()) {
+            nextSegmentNumber = Math.max(nextSegmentNumber, segments.lastKey() + 1);
+        }
+        return new ArrayList<>(segments.values());
+    }
+
+    private static long sizeOf(Path path) {
+        try {
+            return Files.exists(path) ? Files.size(path) : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static long modifiedOf(Path path) {
+        try {
+            return Files.exists(path) ? Files.getLastModifiedTime(path).toMillis() : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private void closeWriter() throws IOException {
+        if (logWriter != null) {
+            logWriter.close();
+            logWriter = null;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.kidtask.utils;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// A fixed number of read/write locks; a key (a username, or an id for data that belongs
+// to nobody) always maps to the same stripe. Work on keys in different stripes runs in
+// parallel, work on the same key is serialized. Each stripe counts how often it was
+// taken and how often a thread had to wait for it, to size the stripe count
+// (-Dkidtask.lockStripes).
+public class LockStripes {
+    private final ReentrantReadWriteLock[] locks;
+    private final Counters[] counters;
+
+    public LockStripes(int stripes) {
+        int count = Math.max(1, stripes);
+        locks = new ReentrantReadWriteLock[count];
+        counters = new Counters[count];
+        for (int i = 0; i < count; i++) {
+            locks[i] = new ReentrantReadWriteLock();
+            counters[i] = new Counters();
+        }
+    }
+
+    // Acquisition counts of one stripe since startup
+    public static final class Stats {
+        private final int stripe;
+        private final long acquired;
+        private final long contended;
+        private final long waitNanos;
+
+        private Stats(int stripe, long acquired, long contended, long waitNanos) {
+            this.stripe = stripe;
+            this.acquired = acquired;
+            this.contended = contended;
+            this.waitNanos = waitNanos;
+        }
+
+        public int getStripe() {
+            return stripe;
+        }
+
+        public long getAcquired() {
+            return acquired;
+        }
+
+        // Acquisitions that found the lock held and had to wait
+        public long getContended() {
+            return contended;
+        }
+
+        public long getWaitNanos() {
+            return waitNanos;
+        }
+
+        public double getContentionRate() {
+            return acquired == 0 ? 0 : (double) contended / acquired;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("stripe %d: %d acquired, %d contended (%.1f%%), waited %d ms", stripe, acquired,
+                    contended, getContentionRate() * 100, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+        }
+    }
+
+    private static final class Counters {
+        final LongAdder acquired = new LongAdder();
+        final LongAdder contended = new LongAdder();
+        final LongAdder waitNanos = new LongAdder();
+    }
+
+    public int size() {
+        return locks.length;
+    }
+
+    public int stripeOf(Object key) {
+        // Ardışık isimlerin (kid1, kid2...) hash'leri de ardışık: tüm bitleri karıştır
+        int h = Objects.hashCode(key);
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return Math.floorMod(h, locks.length);
+    }
+
+    // Taken write locks; give the result back to unlock()
+    public int[] lockWrite(Object... keys) {
+        int[] stripes = stripesOf(keys);
+        for (int stripe : stripes) {
+            acquire(stripe, locks[stripe].writeLock());
+        }
+        return stripes;
+    }
+
+    public int[] lockRead(Object... keys) {
+        int[] stripes = stripesOf(keys);
+        for (int stripe : stripes) {
+            acquire(stripe, locks[stripe].readLock());
+        }
+        return stripes;
+    }
+
+    public void unlockWrite(int[] stripes) {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            locks[stripes[i]].writeLock().unlock();
+        }
+    }
+
+    public void unlockRead(int[] stripes) {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            locks[stripes[i]].readLock().unlock();
+        }
+    }
+
+    // Every stripe's write lock, for work that touches all keys (loads, full rewrites)
+    public void lockAll() {
+        for (int i = 0; i < locks.length; i++) {
+            acquire(i, locks[i].writeLock());
+        }
+    }
+
+    public void unlockAll() {
+        for (int i = locks.length - 1; i >= 0; i--) {
+            locks[i].writeLock().unlock();
+        }
+    }
+
+    public List<Stats> stats() {
+        List<Stats> stats = new ArrayList<>(locks.length);
+        for (int i = 0; i < locks.length; i++) {
+            Counters c = counters[i];
+            stats.add(new Stats(i, c.acquired.sum(), c.contended.sum(), c.waitNanos.sum()));
+        }
+        return stats;
+    }
+
+    // Kilitler her zaman artan stripe sırasıyla alınır; iki anahtar aynı stripe'a düşerse bir kez
+    private int[] stripesOf(Object[] keys) {
+        int[] stripes = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            stripes[i] = stripeOf(keys[i]);
+        }
+        return Arrays.stream(stripes).sorted().distinct().toArray();
+    }
+
+    private void acquire(int stripe, Lock lock) {
+        Counters c = counters[stripe];
+        c.acquired.increment();
+        if (lock.tryLock()) {
+            return;
+        }
+        long start = System.nanoTime();
+        lock.lock();
+        c.contended.increment();
+        c.waitNanos.add(System.nanoTime() - start);
+    }
+}
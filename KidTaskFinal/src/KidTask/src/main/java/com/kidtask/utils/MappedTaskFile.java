@@ -0,0 +1,390 @@
+package com.kidtask.utils;
+
+import com.kidtask.models.Task;
+import com.kidtask.models.TaskTemplate;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+// Binary task file opened with FileChannel.map, used instead of Tasks.txt + logs with
+// -Dkidtask.taskFile=mapped.
+//   Tasks.dat: 4 KB header page, then fixed 64-byte records (64 per page):
+//              flags, status, type, id, points, rating, epoch day, template id and
+//              offset/length of title, description, assignee and creator
+//   Tasks.ovf: overflow area, the variable-length text (UTF-8) the records point at
+// Records are found through an id -> record map built when the file is opened. Saving
+// a task rewrites its fixed fields at the record's offset; text is only appended to the
+// overflow area when it actually changed, so a status or rating change is a few bytes
+// written to one mapped page. checkpoint() rewrites both files without free records
+// and stale text.
+// The OS writes the pages back; -Dkidtask.forceMappedWrites=true forces every record to disk.
+public class MappedTaskFile {
+    private static final int MAGIC = 0x4B544454; // "KTDT"
+    private static final int OVERFLOW_MAGIC = 0x4B54544F; // "KTTO"
+    private static final int VERSION = 1;
+    private static final int PAGE_SIZE = 4096;
+    private static final int RECORD_SIZE = 64;
+    private static final int OVERFLOW_HEADER = 16;
+    private static final boolean FORCE_WRITES = Boolean.getBoolean("kidtask.forceMappedWrites");
+
+    // Header: magic, version, record size, record count (high-water mark)
+    private static final int HEADER_RECORD_COUNT = 12;
+    // Overflow header: magic, version, end offset (long)
+    private static final int OVERFLOW_END = 8;
+
+    // Record fields
+    private static final int FLAGS = 0;
+    private static final int STATUS = 1;
+    private static final int TYPE = 2;
+    private static final int ID = 4;
+    private static final int POINTS = 8;
+    private static final int RATING = 12;
+    private static final int DUE_DAY = 16;
+    private static final int TEMPLATE = 20;
+    private static final int TITLE = 24;
+    private static final int DESCRIPTION = 32;
+    private static final int ASSIGNEE = 40;
+    private static final int CREATOR = 48;
+    private static final int[] TEXT_FIELDS = {TITLE, DESCRIPTION, ASSIGNEE, CREATOR};
+
+    private static final byte FREE = 0;
+    private static final byte LIVE = 1;
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final int NO_TEXT = -1;
+    private static final Task.TaskStatus[] STATUSES = Task.TaskStatus.values();
+    private static final Task.TaskType[] TYPES = Task.TaskType.values();
+
+    private final Path dataPath;
+    private final Path overflowPath;
+    private FileChannel dataChannel;
+    private FileChannel overflowChannel;
+    private MappedByteBuffer records;
+    private MappedByteBuffer overflow;
+    private int recordCount;
+    private int overflowEnd;
+    private final IntIntMap recordsById = new IntIntMap();
+    private int[] freeRecords = new int[16];
+    private int freeCount;
+    // Tasks.dat'ın açıldığı andaki kimliği (inode); dosya sistemi vermiyorsa null
+    private Object mappedFileKey;
+
+    // The overflow area goes next to the data file (Tasks.dat -> Tasks.ovf)
+    public MappedTaskFile(Path dataPath) {
+        this(dataPath.toAbsolutePath(), overflowPathFor(dataPath.toAbsolutePath(), ""));
+    }
+
+    private MappedTaskFile(Path dataPath, Path overflowPath) {
+        this.dataPath = dataPath;
+        this.overflowPath = overflowPath;
+    }
+
+    private static Path overflowPathFor(Path dataPath, String suffix) {
+        String name = dataPath.getFileName().toString();
+        String base = name.endsWith(".dat") ? name.substring(0, name.length() - 4) : name;
+        return dataPath.resolveSibling(base + ".ovf" + suffix);
+    }
+
+    public Path getPath() {
+        return dataPath;
+    }
+
+    // True for Tasks.dat and its overflow file (names in the data directory)
+    public boolean owns(String fileName) {
+        return fileName.equals(dataPath.getFileName().toString())
+                || fileName.equals(overflowPath.getFileName().toString());
+    }
+
+    // Maps the files (creating them if needed) and indexes the records.
+    // Returns true if the file did not exist yet, i.e. the tasks still have to be written.
+    public synchronized boolean open() throws IOException {
+        close();
+        boolean created = !Files.exists(dataPath) || Files.size(dataPath) < PAGE_SIZE;
+        dataChannel = FileChannel.open(dataPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        overflowChannel = FileChannel.open(overflowPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (created) {
+            records = dataChannel.map(FileChannel.MapMode.READ_WRITE, 0, PAGE_SIZE * 2);
+            records.putInt(0, MAGIC);
+            records.putInt(4, VERSION);
+            records.putInt(8, RECORD_SIZE);
+            records.putInt(HEADER_RECORD_COUNT, 0);
+            overflow = overflowChannel.map(FileChannel.MapMode.READ_WRITE, 0, PAGE_SIZE);
+            overflow.putInt(0, OVERFLOW_MAGIC);
+            overflow.putInt(4, VERSION);
+            overflow.putLong(OVERFLOW_END, OVERFLOW_HEADER);
+        } else {
+            records = dataChannel.map(FileChannel.MapMode.READ_WRITE, 0, dataChannel.size());
+            overflow = overflowChannel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(overflowChannel.size(), PAGE_SIZE));
+            if (records.getInt(0) != MAGIC || records.getInt(4) != VERSION || records.getInt(8) != RECORD_SIZE
+                    || overflow.getInt(0) != OVERFLOW_MAGIC) {
+                close();
+                throw new IOException("Not a version " + VERSION + " task file: " + dataPath);
+            }
+        }
+        recordCount = records.getInt(HEADER_RECORD_COUNT);
+        overflowEnd = (int) overflow.getLong(OVERFLOW_END);
+        mappedFileKey = Files.readAttributes(dataPath, BasicFileAttributes.class).fileKey();
+        recordsById.clear();
+        freeCount = 0;
+        for (int record = 0; record < recordCount; record++) {
+            int base = offset(record);
+            if (records.get(base + FLAGS) == LIVE) {
+                recordsById.put(records.getInt(base + ID), record);
+            } else {
+                pushFree(record);
+            }
+        }
+        return created;
+    }
+
+    // False if the file system reports no file identity, i.e. isReplaced() cannot tell
+    public synchronized boolean tracksReplacement() {
+        return mappedFileKey != null;
+    }
+
+    // True if Tasks.dat on disk is no longer the file we mapped: another process's
+    // checkpoint moved a new file in. Writes into the mapped records are not detected.
+    public synchronized boolean isReplaced() throws IOException {
+        if (mappedFileKey == null) {
+            return false;
+        }
+        return !Files.exists(dataPath)
+                || !mappedFileKey.equals(Files.readAttributes(dataPath, BasicFileAttributes.class).fileKey());
+    }
+
+    public synchronized int size() {
+        return recordsById.size();
+    }
+
+    // Reads every live record, in file order. Templated records are linked to their
+    // TaskTemplate; a record whose template is missing is reported to onError.
+    public synchronized void load(IntFunction<TaskTemplate> templates, Consumer<Task> onTask,
+                                  BiConsumer<String, Exception> onError) {
+        for (int record = 0; record < recordCount; record++) {
+            int base = offset(record);
+            if (records.get(base + FLAGS) != LIVE) {
+                continue;
+            }
+            try {
+                onTask.accept(read(base, templates));
+            } catch (RuntimeException e) {
+                onError.accept("record " + record + " (id " + records.getInt(base + ID) + ")", e);
+            }
+        }
+    }
+
+    // Inserts the task or updates its record in place
+    public synchronized void write(Task task) throws IOException {
+        int record = recordsById.get(task.getId());
+        boolean inserted = record == IntIntMap.MISSING;
+        if (inserted) {
+            record = allocateRecord();
+        }
+        int base = offset(record);
+        TaskTemplate template = task.getTemplate();
+        // Metin önce: kayıt hiçbir zaman yarım yazılmış bir metne işaret etmez
+        if (template != null) {
+            putText(base + TITLE, null);
+            putText(base + DESCRIPTION, null);
+            putText(base + CREATOR, null);
+        } else {
+            putText(base + TITLE, task.getTitle());
+            putText(base + DESCRIPTION, task.getDescription());
+            putText(base + CREATOR, task.getCreator());
+        }
+        putText(base + ASSIGNEE, task.getAssignee());
+        records.put(base + STATUS, (byte) task.getStatus().ordinal());
+        records.put(base + TYPE, (byte) task.getType().ordinal());
+        records.putInt(base + ID, task.getId());
+        records.putInt(base + POINTS, task.getPoints());
+        records.putInt(base + RATING, task.getRating());
+        records.putInt(base + DUE_DAY, task.getDueDate() == null ? NO_DATE : (int) task.getDueDate().toEpochDay());
+        records.putInt(base + TEMPLATE, template == null ? 0 : template.getId());
+        if (inserted) {
+            records.put(base + FLAGS, LIVE);
+            recordsById.put(task.getId(), record);
+        }
+        if (FORCE_WRITES) {
+            overflow.force();
+            records.force(base, RECORD_SIZE);
+        }
+    }
+
+    public synchronized void delete(int id) throws IOException {
+        int record = recordsById.remove(id);
+        if (record == IntIntMap.MISSING) {
+            return;
+        }
+        int base = offset(record);
+        records.put(base + FLAGS, FREE);
+        for (int field : TEXT_FIELDS) {
+            putText(base + field, null);
+        }
+        pushFree(record);
+        if (FORCE_WRITES) {
+            records.force(base, RECORD_SIZE);
+        }
+    }
+
+    // Writes the given tasks into fresh files next to the current ones and swaps them in,
+    // which drops free records and overflow garbage
+    public synchronized void checkpoint(Collection<Task> tasks) throws IOException {
+        Path tmpData = dataPath.resolveSibling(dataPath.getFileName() + ".tmp");
+        Path tmpOverflow = overflowPathFor(dataPath, ".tmp");
+        Files.deleteIfExists(tmpData);
+        Files.deleteIfExists(tmpOverflow);
+        MappedTaskFile fresh = new MappedTaskFile(tmpData, tmpOverflow);
+        fresh.open();
+        for (Task task : tasks) {
+            fresh.write(task);
+        }
+        fresh.records.force();
+        fresh.overflow.force();
+        fresh.close();
+        close();
+        // Önce overflow: yeni kayıtlar eski overflow'a, eski kayıtlar yenisine bakmamalı;
+        // iki dosya arası tutarsızlık ancak iki taşıma arasında çökülürse olur
+        move(tmpOverflow, overflowPath);
+        move(tmpData, dataPath);
+        open();
+    }
+
+    public synchronized void close() throws IOException {
+        records = null;
+        overflow = null;
+        if (dataChannel != null) {
+            dataChannel.close();
+            dataChannel = null;
+        }
+        if (overflowChannel != null) {
+            overflowChannel.close();
+            overflowChannel = null;
+        }
+    }
+
+    private Task read(int base, IntFunction<TaskTemplate> templates) {
+        int id = records.getInt(base + ID);
+        Task.TaskStatus status = STATUSES[records.get(base + STATUS)];
+        String assignee = getText(base + ASSIGNEE);
+        int rating = records.getInt(base + RATING);
+        int templateId = records.getInt(base + TEMPLATE);
+        if (templateId != 0) {
+            TaskTemplate template = templates.apply(templateId);
+            if (template == null) {
+                throw new IllegalArgumentException("Unknown task template " + templateId);
+            }
+            return new Task(id, template, status, assignee, rating);
+        }
+        int day = records.getInt(base + DUE_DAY);
+        LocalDate dueDate = day == NO_DATE ? null : LocalDate.ofEpochDay(day);
+        return new Task(id, getText(base + TITLE), getText(base + DESCRIPTION), records.getInt(base + POINTS),
+                status, TYPES[records.get(base + TYPE)], assignee, getText(base + CREATOR), rating, dueDate);
+    }
+
+    private static int offset(int record) {
+        return PAGE_SIZE + record * RECORD_SIZE;
+    }
+
+    private int allocateRecord() throws IOException {
+        if (freeCount > 0) {
+            return freeRecords[--freeCount];
+        }
+        int record = recordCount;
+        long needed = (long) offset(record + 1);
+        if (needed > records.capacity()) {
+            records = remap(dataChannel, Math.max(needed, (long) records.capacity() * 2));
+        }
+        int base = offset(record);
+        records.put(base + FLAGS, FREE);
+        for (int field : TEXT_FIELDS) {
+            records.putInt(base + field, 0);
+            records.putInt(base + field + 4, NO_TEXT);
+        }
+        recordCount++;
+        records.putInt(HEADER_RECORD_COUNT, recordCount);
+        return record;
+    }
+
+    private void pushFree(int record) {
+        if (freeCount == freeRecords.length) {
+            freeRecords = Arrays.copyOf(freeRecords, freeCount * 2);
+        }
+        freeRecords[freeCount++] = record;
+    }
+
+    private String getText(int ref) {
+        int length = records.getInt(ref + 4);
+        if (length == NO_TEXT) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        overflow.get(records.getInt(ref), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Points the reference at the value; appends to the overflow area only if the text changed
+    private void putText(int ref, String value) throws IOException {
+        int oldLength = records.getInt(ref + 4);
+        if (value == null) {
+            if (oldLength != NO_TEXT) {
+                records.putInt(ref, 0);
+                records.putInt(ref + 4, NO_TEXT);
+            }
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (oldLength == bytes.length && sameBytes(records.getInt(ref), bytes)) {
+            return;
+        }
+        if ((long) overflowEnd + bytes.length > Integer.MAX_VALUE) {
+            throw new IOException("Task overflow area is full: " + overflowPath);
+        }
+        if (overflowEnd + bytes.length > overflow.capacity()) {
+            overflow = remap(overflowChannel, Math.max((long) overflowEnd + bytes.length, (long) overflow.capacity() * 2));
+        }
+        overflow.put(overflowEnd, bytes);
+        records.putInt(ref, overflowEnd);
+        records.putInt(ref + 4, bytes.length);
+        overflowEnd += bytes.length;
+        overflow.putLong(OVERFLOW_END, overflowEnd);
+    }
+
+    private boolean sameBytes(int offset, byte[] bytes) {
+        for (int i = 0; i < bytes.length; i++) {
+            if (overflow.get(offset + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Dosyayı sayfa katına büyütüp yeniden map'ler; eski map GC ile bırakılır
+    private static MappedByteBuffer remap(FileChannel channel, long size) throws IOException {
+        long pages = (size + PAGE_SIZE - 1) / PAGE_SIZE;
+        long capacity = Math.min(pages * PAGE_SIZE, Integer.MAX_VALUE);
+        if (capacity < size) {
+            throw new IOException("Task file cannot grow past 2 GB");
+        }
+        return channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    private static void move(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,438 @@
+package com.kidtask.utils;
+
+import com.kidtask.models.Task;
+import com.kidtask.models.TaskTemplate;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+// Task store in direct (off-heap) memory, so the GC neither scans nor copies the tasks.
+//   slots: one fixed 48-byte slot per task (numbers, enum ordinals, epoch day, user
+//          ids, template id, and offset/length of the title and description)
+//   text:  title and description bytes (UTF-8), appended; space left behind by
+//          changed or deleted text is reclaimed by compacting when the region fills up
+// Deleted slots form a free list through their id field. The id -> slot map is a
+// DirectIntIntMap; only the (few) TaskTemplates stay on the heap.
+// Like TaskTable, get() returns a small Task view reading and writing the slot.
+public class OffHeapTaskStore implements TaskStore {
+    private static final int ID = 0;
+    private static final int POINTS = 4;
+    private static final int RATING = 8;
+    private static final int DUE_DAY = 12;
+    private static final int ASSIGNEE = 16;
+    private static final int CREATOR = 20;
+    private static final int TEMPLATE = 24;
+    private static final int STATUS = 28;
+    private static final int TYPE = 29;
+    private static final int TITLE = 32;
+    private static final int DESCRIPTION = 40;
+    private static final int SLOT_SIZE = 48;
+    private static final int[] TEXT_FIELDS = {TITLE, DESCRIPTION};
+
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final int NO_TEXT = -1;
+    private static final byte FREE = -1;
+    private static final Task.TaskStatus[] STATUSES = Task.TaskStatus.values();
+    private static final Task.TaskType[] TYPES = Task.TaskType.values();
+
+    private final DirectIntIntMap slotsById = new DirectIntIntMap();
+    private final Map<Integer, TaskTemplate> templates = new HashMap<>();
+    private ByteBuffer slots = allocate(16 * SLOT_SIZE);
+    // Kullanılan en yüksek slot + 1; silinenler freeHead'den başlayan zincirde
+    private int slotCount;
+    private int freeHead = -1;
+    private ByteBuffer text = allocate(1024);
+    private int textEnd;
+    private long textGarbage;
+
+    @Override
+    public Task get(int id) {
+        int slot = slotsById.get(id);
+        return slot == DirectIntIntMap.MISSING ? null : new SlotView(this, slot);
+    }
+
+    @Override
+    public void put(Task task) {
+        if (task instanceof SlotView && ((SlotView) task).store == this) {
+            // Görünüm slota doğrudan yazıyor
+            return;
+        }
+        int slot = slotsById.get(task.getId());
+        if (slot == DirectIntIntMap.MISSING) {
+            slot = allocateSlot();
+            slotsById.put(task.getId(), slot);
+        }
+        int base = slot * SLOT_SIZE;
+        slots.putInt(base + ID, task.getId());
+        slots.putInt(base + POINTS, task.getPoints());
+        slots.putInt(base + RATING, task.getRating());
+        slots.putInt(base + DUE_DAY, task.getDueDate() == null ? NO_DATE : (int) task.getDueDate().toEpochDay());
+        slots.putInt(base + ASSIGNEE, task.getAssigneeId());
+        slots.putInt(base + CREATOR, task.getCreatorId());
+        slots.put(base + STATUS, (byte) task.getStatus().ordinal());
+        slots.put(base + TYPE, (byte) task.getType().ordinal());
+        TaskTemplate template = task.getTemplate();
+        if (template != null) {
+            templates.putIfAbsent(template.getId(), template);
+            slots.putInt(base + TEMPLATE, template.getId());
+            putText(slot, TITLE, null);
+            putText(slot, DESCRIPTION, null);
+        } else {
+            slots.putInt(base + TEMPLATE, 0);
+            putText(slot, TITLE, task.getTitle());
+            putText(slot, DESCRIPTION, task.getDescription());
+        }
+    }
+
+    @Override
+    public void remove(int id) {
+        int slot = slotsById.remove(id);
+        if (slot == DirectIntIntMap.MISSING) {
+            return;
+        }
+        putText(slot, TITLE, null);
+        putText(slot, DESCRIPTION, null);
+        int base = slot * SLOT_SIZE;
+        slots.put(base + STATUS, FREE);
+        slots.putInt(base + ID, freeHead);
+        freeHead = slot;
+    }
+
+    @Override
+    public int size() {
+        return slotsById.size();
+    }
+
+    @Override
+    public Collection<Task> values() {
+        return new AbstractCollection<Task>() {
+            @Override
+            public Iterator<Task> iterator() {
+                return new Iterator<Task>() {
+                    private int slot = nextLiveSlot(0);
+
+                    @Override
+                    public boolean hasNext() {
+                        return slot < slotCount;
+                    }
+
+                    @Override
+                    public Task next() {
+                        if (slot >= slotCount) {
+                            throw new NoSuchElementException();
+                        }
+                        Task view = new SlotView(OffHeapTaskStore.this, slot);
+                        slot = nextLiveSlot(slot + 1);
+                        return view;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return OffHeapTaskStore.this.size();
+            }
+        };
+    }
+
+    // Kopyalar: satır görünümleri doğrudan kolonlara yazar ve satır silinince geçersizleşir
+    @Override
+    public List<Task> snapshot() {
+        List<Task> copies = new ArrayList<>(size());
+        forEach(task -> copies.add(task.copy()));
+        return copies;
+    }
+
+    @Override
+    public void forEach(Consumer<Task> action) {
+        // Tek imleç slottan slota kaydırılır
+        SlotView cursor = new SlotView(this, 0);
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (isLive(slot)) {
+                cursor.slot = slot;
+                cursor.id = slots.getInt(slot * SLOT_SIZE + ID);
+                action.accept(cursor);
+            }
+        }
+    }
+
+    // Direct memory held (slots, text region and id map); the heap only keeps this object
+    public long offHeapBytes() {
+        return (long) slots.capacity() + text.capacity() + slotsById.sizeInBytes();
+    }
+
+    private boolean isLive(int slot) {
+        return slots.get(slot * SLOT_SIZE + STATUS) != FREE;
+    }
+
+    private int nextLiveSlot(int slot) {
+        while (slot < slotCount && !isLive(slot)) {
+            slot++;
+        }
+        return slot;
+    }
+
+    private int allocateSlot() {
+        int slot;
+        if (freeHead >= 0) {
+            slot = freeHead;
+            freeHead = slots.getInt(slot * SLOT_SIZE + ID);
+        } else {
+            if ((slotCount + 1) * SLOT_SIZE > slots.capacity()) {
+                slots = copyOf(slots, slotCount * SLOT_SIZE, (long) slots.capacity() * 2);
+            }
+            slot = slotCount++;
+        }
+        int base = slot * SLOT_SIZE;
+        slots.putInt(base + TITLE + 4, NO_TEXT);
+        slots.putInt(base + DESCRIPTION + 4, NO_TEXT);
+        return slot;
+    }
+
+    private String getText(int slot, int field) {
+        int base = slot * SLOT_SIZE + field;
+        int length = slots.getInt(base + 4);
+        if (length == NO_TEXT) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        text.get(slots.getInt(base), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void putText(int slot, int field, String value) {
+        int base = slot * SLOT_SIZE + field;
+        int oldLength = slots.getInt(base + 4);
+        if (value == null) {
+            slots.putInt(base, 0);
+            slots.putInt(base + 4, NO_TEXT);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            // Sıkıştırma eski metni de taşıyabilir; ofset ondan sonra okunur
+            ensureText(bytes.length);
+            text.put(textEnd, bytes);
+            slots.putInt(base, textEnd);
+            slots.putInt(base + 4, bytes.length);
+            textEnd += bytes.length;
+        }
+        if (oldLength > 0) {
+            textGarbage += oldLength;
+        }
+    }
+
+    private void ensureText(int length) {
+        if ((long) textEnd + length <= text.capacity()) {
+            return;
+        }
+        // Bölgenin yarısından fazlası çöpse büyütmeden önce sıkıştır
+        long needed = (long) textEnd - textGarbage + length;
+        long capacity = textGarbage * 2 > textEnd ? text.capacity() : (long) text.capacity() * 2;
+        while (capacity < needed) {
+            capacity *= 2;
+        }
+        compactText(Math.min(capacity, Integer.MAX_VALUE));
+        if ((long) textEnd + length > text.capacity()) {
+            throw new IllegalStateException("Task text region is full (" + text.capacity() + " bytes)");
+        }
+    }
+
+    // Copies the live text into a new region, in slot order, and drops the garbage
+    private void compactText(long capacity) {
+        ByteBuffer compacted = allocate((int) capacity);
+        int end = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (!isLive(slot)) {
+                continue;
+            }
+            for (int field : TEXT_FIELDS) {
+                int base = slot * SLOT_SIZE + field;
+                int length = slots.getInt(base + 4);
+                if (length > 0) {
+                    compacted.put(end, text, slots.getInt(base), length);
+                    slots.putInt(base, end);
+                    end += length;
+                }
+            }
+        }
+        text = compacted;
+        textEnd = end;
+        textGarbage = 0;
+    }
+
+    private static ByteBuffer allocate(int bytes) {
+        return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+    }
+
+    private static ByteBuffer copyOf(ByteBuffer buffer, int used, long capacity) {
+        if (capacity > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Task slot region is full (" + buffer.capacity() + " bytes)");
+        }
+        ByteBuffer copy = allocate((int) capacity);
+        copy.put(0, buffer, 0, used);
+        return copy;
+    }
+
+    // A Task backed by one slot. Like TaskTable's row views it remembers the id it
+    // expects in the slot and looks the slot up again if the task was moved or deleted.
+    private static final class SlotView extends Task {
+        private final OffHeapTaskStore store;
+        private int slot;
+        private int id;
+
+        private SlotView(OffHeapTaskStore store, int slot) {
+            this.store = store;
+            this.slot = slot;
+            this.id = store.slots.getInt(slot * SLOT_SIZE + ID);
+        }
+
+        private int slot() {
+            if (store.slots.getInt(slot * SLOT_SIZE + ID) != id || !store.isLive(slot)) {
+                int moved = store.slotsById.get(id);
+                if (moved == DirectIntIntMap.MISSING) {
+                    throw new IllegalStateException("Task " + id + " is no longer in the store");
+                }
+                slot = moved;
+            }
+            return slot;
+        }
+
+        private int base() {
+            return slot() * SLOT_SIZE;
+        }
+
+        @Override
+        public int getId() {
+            return id;
+        }
+
+        @Override
+        public void setId(int id) {
+            throw new UnsupportedOperationException("Task id cannot change in an OffHeapTaskStore");
+        }
+
+        @Override
+        public TaskTemplate getTemplate() {
+            int templateId = store.slots.getInt(base() + TEMPLATE);
+            return templateId == 0 ? null : store.templates.get(templateId);
+        }
+
+        @Override
+        protected void detachTemplate() {
+            TaskTemplate template = getTemplate();
+            if (template != null) {
+                store.putText(slot, TITLE, template.getTitle());
+                store.putText(slot, DESCRIPTION, template.getDescription());
+                store.slots.putInt(base() + TEMPLATE, 0);
+            }
+        }
+
+        @Override
+        public String getTitle() {
+            TaskTemplate template = getTemplate();
+            return template != null ? template.getTitle() : store.getText(slot, TITLE);
+        }
+
+        @Override
+        public void setTitle(String title) {
+            detachTemplate();
+            store.putText(slot(), TITLE, title);
+        }
+
+        @Override
+        public String getDescription() {
+            TaskTemplate template = getTemplate();
+            return template != null ? template.getDescription() : store.getText(slot, DESCRIPTION);
+        }
+
+        @Override
+        public void setDescription(String description) {
+            detachTemplate();
+            store.putText(slot(), DESCRIPTION, description);
+        }
+
+        @Override
+        public int getPoints() {
+            return store.slots.getInt(base() + POINTS);
+        }
+
+        @Override
+        public void setPoints(int points) {
+            detachTemplate();
+            store.slots.putInt(base() + POINTS, points);
+        }
+
+        @Override
+        public TaskStatus getStatus() {
+            return STATUSES[store.slots.get(base() + STATUS)];
+        }
+
+        @Override
+        public void setStatus(TaskStatus status) {
+            store.slots.put(base() + STATUS, (byte) status.ordinal());
+        }
+
+        @Override
+        public TaskType getType() {
+            return TYPES[store.slots.get(base() + TYPE)];
+        }
+
+        @Override
+        public void setType(TaskType type) {
+            detachTemplate();
+            store.slots.put(base() + TYPE, (byte) type.ordinal());
+        }
+
+        @Override
+        public int getAssigneeId() {
+            return store.slots.getInt(base() + ASSIGNEE);
+        }
+
+        @Override
+        public void setAssigneeId(int assigneeId) {
+            store.slots.putInt(base() + ASSIGNEE, assigneeId);
+        }
+
+        @Override
+        public int getCreatorId() {
+            return store.slots.getInt(base() + CREATOR);
+        }
+
+        @Override
+        public void setCreatorId(int creatorId) {
+            detachTemplate();
+            store.slots.putInt(base() + CREATOR, creatorId);
+        }
+
+        @Override
+        public int getRating() {
+            return store.slots.getInt(base() + RATING);
+        }
+
+        @Override
+        public void setRating(int rating) {
+            store.slots.putInt(base() + RATING, rating);
+        }
+
+        @Override
+        public LocalDate getDueDate() {
+            int day = store.slots.getInt(base() + DUE_DAY);
+            return day == NO_DATE ? null : LocalDate.ofEpochDay(day);
+        }
+
+        @Override
+        public void setDueDate(LocalDate dueDate) {
+            detachTemplate();
+            store.slots.putInt(base() + DUE_DAY, dueDate == null ? NO_DATE : (int) dueDate.toEpochDay());
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.kidtask.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Splits a record file into newline-aligned chunks and parses them on the fork-join pool.
+// Parsed records are handed to the callbacks on the calling thread, in file order,
+// so replay semantics (last record per key wins) are the same as a sequential read.
+final class ParallelRecordLoader {
+    static final String UPSERT_PREFIX = "U;";
+    static final String DELETE_PREFIX = "D;";
+    private static final long CHUNK_BYTES = Long.getLong("kidtask.loadChunkBytes", 4 * 1024 * 1024);
+    private static final int SCAN_BUFFER_BYTES = 8 * 1024;
+
+    private ParallelRecordLoader() {
+    }
+
+    // isLog: lines carry "U;"/"D;" prefixes (log segments) instead of bare records (snapshot)
+    static <T> void load(Path path, boolean isLog, Function<RecordReader, T> parser, Consumer<T> onUpsert,
+                         Consumer<String> onDelete, BiConsumer<String, Exception> onError) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<Long> starts = chunkStarts(channel, size);
+            List<ChunkTask<T>> tasks = new ArrayList<>();
+            for (int i = 0; i < starts.size(); i++) {
+                long end = i + 1 < starts.size() ? starts.get(i + 1) : size;
+                tasks.add(new ChunkTask<>(channel, path, starts.get(i), end, isLog, parser));
+            }
+            try {
+                if (tasks.size() == 1) {
+                    // Küçük dosya: thread'e dağıtmaya değmez
+                    tasks.get(0).invoke();
+                } else if (ForkJoinTask.inForkJoinPool()) {
+                    ForkJoinTask.invokeAll(tasks);
+                } else {
+                    ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+                        @Override
+                        protected void compute() {
+                            invokeAll(tasks);
+                        }
+                    });
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            for (ChunkTask<T> task : tasks) {
+                task.join().apply(onUpsert, onDelete, onError);
+            }
+        }
+    }
+
+    // Reads a log segment from byte offset `from` up to its last complete line before
+    // `to` (another process may be in the middle of writing one) and returns the offset
+    // it stopped at
+    static <T> long loadTail(Path path, long from, long to, Function<RecordReader, T> parser, Consumer<T> onUpsert,
+                             Consumer<String> onDelete, BiConsumer<String, Exception> onError) throws IOException {
+        if (!Files.exists(path)) {
+            return from;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long end = lastLineEnd(channel, from, Math.min(to, channel.size()));
+            if (end > from) {
+                try {
+                    new ChunkTask<>(channel, path, from, end, true, parser).invoke().apply(onUpsert, onDelete, onError);
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+            }
+            return end;
+        }
+    }
+
+    // Offset right after the last '\n' in [from, size), or from if there is none
+    private static long lastLineEnd(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_BYTES);
+        long blockEnd = size;
+        while (blockEnd > from) {
+            long blockStart = Math.max(from, blockEnd - SCAN_BUFFER_BYTES);
+            buffer.clear();
+            buffer.limit((int) (blockEnd - blockStart));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, blockStart + buffer.position()) < 0) {
+                    break;
+                }
+            }
+            for (int i = buffer.position() - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') {
+                    return blockStart + i + 1;
+                }
+            }
+            blockEnd = blockStart;
+        }
+        return from;
+    }
+
+    // Chunk boundaries are placed right after a '\n' so no line is split between chunks
+    private static List<Long> chunkStarts(FileChannel channel, long size) throws IOException {
+        List<Long> starts = new ArrayList<>();
+        starts.add(0L);
+        ByteBuffer scan = ByteBuffer.allocate(SCAN_BUFFER_BYTES);
+        long target = CHUNK_BYTES;
+        while (target < size) {
+            long newline = -1;
+            long position = target;
+            while (newline < 0 && position < size) {
+                scan.clear();
+                int read = channel.read(scan, position);
+                if (read <= 0) {
+                    break;
+                }
+                for (int i = 0; i < read; i++) {
+                    if (scan.get(i) == '\n') {
+                        newline = position + i;
+                        break;
+                    }
+                }
+                position += read;
+            }
+            if (newline < 0 || newline + 1 >= size) {
+                break;
+            }
+            starts.add(newline + 1);
+            target = newline + 1 + CHUNK_BYTES;
+        }
+        return starts;
+    }
+
+    private static final class DeleteRecord {
+        private final String key;
+
+        private DeleteRecord(String key) {
+            this.key = key;
+        }
+    }
+
+    private static final class ChunkResult<T> {
+        // T (upsert) veya DeleteRecord, dosyadaki sırayla
+        private final List<Object> records = new ArrayList<>();
+        private final List<String> badLines = new ArrayList<>();
+        private final List<Exception> errors = new ArrayList<>();
+
+        @SuppressWarnings("unchecked")
+        private void apply(Consumer<T> onUpsert, Consumer<String> onDelete, BiConsumer<String, Exception> onError) {
+            for (Object record : records) {
+                if (record instanceof DeleteRecord) {
+                    onDelete.accept(((DeleteRecord) record).key);
+                } else {
+                    onUpsert.accept((T) record);
+                }
+            }
+            for (int i = 0; i < badLines.size(); i++) {
+                onError.accept(badLines.get(i), errors.get(i));
+            }
+        }
+    }
+
+    private static final class ChunkTask<T> extends RecursiveTask<ChunkResult<T>> {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final Path path;
+        private final long start;
+        private final long end;
+        private final boolean isLog;
+        private final Function<RecordReader, T> parser;
+
+        private ChunkTask(FileChannel channel, Path path, long start, long end, boolean isLog,
+                          Function<RecordReader, T> parser) {
+            this.channel = channel;
+            this.path = path;
+            this.start = start;
+            this.end = end;
+            this.isLog = isLog;
+            this.parser = parser;
+        }
+
+        @Override
+        protected ChunkResult<T> compute() {
+            ChunkResult<T> result = new ChunkResult<>();
+            char[] chars;
+            int length;
+            try {
+                ByteBuffer bytes = ByteBuffer.allocate((int) (end - start));
+                // Positional read: aynı channel'ı paylaşan worker'lar birbirini etkilemez
+                while (bytes.hasRemaining()) {
+                    if (channel.read(bytes, start + bytes.position()) < 0) {
+                        break;
+                    }
+                }
+                bytes.flip();
+                CharBuffer decoded = StandardCharsets.UTF_8.newDecoder()
+                        .onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                        .decode(bytes);
+                chars = decoded.array();
+                length = decoded.limit();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            RecordReader record = new RecordReader();
+            int lineStart = 0;
+            for (int i = 0; i <= length; i++) {
+                if (i == length || chars[i] == '\n') {
+                    parseLine(record.reset(chars, lineStart, i), result);
+                    lineStart = i + 1;
+                }
+            }
+            return result;
+        }
+
+        private void parseLine(RecordReader record, ChunkResult<T> result) {
+            if (record.isEmpty()) {
+                return;
+            }
+            if (isLog) {
+                if (record.startsWith(DELETE_PREFIX)) {
+                    result.records.add(new DeleteRecord(record.skip(DELETE_PREFIX.length()).toString()));
+                    return;
+                }
+                if (!record.startsWith(UPSERT_PREFIX)) {
+                    System.err.println("Skipping unknown log record in " + path.getFileName() + ": " + record);
+                    return;
+                }
+                record.skip(UPSERT_PREFIX.length());
+            }
+            try {
+                result.records.add(parser.apply(record));
+            } catch (Exception e) {
+                result.badLines.add(record.toString());
+                result.errors.add(e);
+            }
+        }
+    }
+}
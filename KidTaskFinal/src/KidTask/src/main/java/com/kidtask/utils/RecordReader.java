@@ -0,0 +1,192 @@
+package com.kidtask.utils;
+
+import java.time.LocalDate;
+
+// Reads ';' separated fields straight out of a char buffer.
+// Numbers, enums and dates are decoded in place, only real text fields become Strings.
+// One instance is reused for every line of a file (reset() does not allocate).
+public final class RecordReader {
+    private static final char SEPARATOR = ';';
+
+    private char[] buffer;
+    private int start;
+    private int end;
+    private int position;
+
+    public RecordReader() {
+    }
+
+    public RecordReader(String line) {
+        reset(line);
+    }
+
+    public RecordReader reset(String line) {
+        char[] chars = line.toCharArray();
+        return reset(chars, 0, chars.length);
+    }
+
+    // Points the reader at buffer[from, to), surrounding whitespace is ignored (like trim())
+    public RecordReader reset(char[] buffer, int from, int to) {
+        while (from < to && buffer[from] <= ' ') {
+            from++;
+        }
+        while (to > from && buffer[to - 1] <= ' ') {
+            to--;
+        }
+        this.buffer = buffer;
+        this.start = from;
+        this.end = to;
+        this.position = from;
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return start == end;
+    }
+
+    public int length() {
+        return end - start;
+    }
+
+    public char charAt(int index) {
+        return buffer[start + index];
+    }
+
+    // Field count of the whole line; unlike String.split trailing empty fields are counted
+    public int fieldCount() {
+        int count = 1;
+        for (int i = start; i < end; i++) {
+            if (buffer[i] == SEPARATOR) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public boolean hasMoreFields() {
+        return position <= end;
+    }
+
+    // Moves past the first n characters of the line (used for "U;" log prefixes)
+    public RecordReader skip(int count) {
+        position = start = Math.min(end, start + count);
+        return this;
+    }
+
+    public String nextString() {
+        int fieldEnd = fieldEnd();
+        String value = new String(buffer, position, fieldEnd - position);
+        advance(fieldEnd);
+        return value;
+    }
+
+    public int nextInt() {
+        int fieldEnd = fieldEnd();
+        int i = position;
+        boolean negative = false;
+        if (i < fieldEnd && (buffer[i] == '-' || buffer[i] == '+')) {
+            negative = buffer[i] == '-';
+            i++;
+        }
+        if (i == fieldEnd) {
+            throw new NumberFormatException("For input string: \"" + currentField(fieldEnd) + "\"");
+        }
+        // Negatif biriktirerek Integer.MIN_VALUE da taşmadan okunur
+        int result = 0;
+        for (; i < fieldEnd; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9 || result < (Integer.MIN_VALUE + digit) / 10) {
+                throw new NumberFormatException("For input string: \"" + currentField(fieldEnd) + "\"");
+            }
+            result = result * 10 - digit;
+        }
+        if (!negative && result == Integer.MIN_VALUE) {
+            throw new NumberFormatException("For input string: \"" + currentField(fieldEnd) + "\"");
+        }
+        advance(fieldEnd);
+        return negative ? result : -result;
+    }
+
+    // Matches the field against the constant names directly, no valueOf()/substring
+    public <E extends Enum<E>> E nextEnum(E[] constants) {
+        int fieldEnd = fieldEnd();
+        int length = fieldEnd - position;
+        for (E constant : constants) {
+            String name = constant.name();
+            if (name.length() == length && matches(name, position)) {
+                advance(fieldEnd);
+                return constant;
+            }
+        }
+        throw new IllegalArgumentException("No enum constant " + constants.getClass().getComponentType().getSimpleName()
+                + "." + currentField(fieldEnd));
+    }
+
+    // ISO yyyy-MM-dd, decoded arithmetically. Empty field means no date.
+    public LocalDate nextDate() {
+        int fieldEnd = fieldEnd();
+        if (fieldEnd == position) {
+            advance(fieldEnd);
+            return null;
+        }
+        int p = position;
+        if (fieldEnd - p != 10 || buffer[p + 4] != '-' || buffer[p + 7] != '-') {
+            throw new IllegalArgumentException("Invalid date: " + currentField(fieldEnd));
+        }
+        int year = digits(p, 4, fieldEnd);
+        int month = digits(p + 5, 2, fieldEnd);
+        int day = digits(p + 8, 2, fieldEnd);
+        advance(fieldEnd);
+        return LocalDate.of(year, month, day);
+    }
+
+    public boolean startsWith(String prefix) {
+        return prefix.length() <= end - start && matches(prefix, start);
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, start, end - start);
+    }
+
+    private int digits(int from, int count, int fieldEnd) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IllegalArgumentException("Invalid date: " + currentField(fieldEnd));
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private int fieldEnd() {
+        if (position > end) {
+            throw new IllegalArgumentException("Missing field in: " + this);
+        }
+        int i = position;
+        while (i < end && buffer[i] != SEPARATOR) {
+            i++;
+        }
+        return i;
+    }
+
+    private void advance(int fieldEnd) {
+        // Ayırıcıyı da atla; son alandan sonra position = end + 1 olur
+        position = fieldEnd + 1;
+    }
+
+    private boolean matches(String text, int from) {
+        for (int i = 0; i < text.length(); i++) {
+            if (buffer[from + i] != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String currentField(int fieldEnd) {
+        return new String(buffer, position, fieldEnd - position);
+    }
+}
@@ -0,0 +1,102 @@
+package com.kidtask.utils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
+
+// Builds one ';' separated record in a reusable buffer.
+// Same instance is used for every record of a file, so saving does not
+// create a String per field or per line.
+public final class RecordWriter {
+    private static final char SEPARATOR = ';';
+    private static final ThreadLocal<RecordWriter> LOCAL = ThreadLocal.withInitial(RecordWriter::new);
+
+    private final StringBuilder buffer = new StringBuilder(128);
+    // writeTo() buraya kopyalar: Writer.append(CharSequence) her kayıt için String üretir
+    private char[] chars = new char[128];
+    private boolean firstField = true;
+
+    // Per-thread instance for the toFileString() helpers
+    public static RecordWriter local() {
+        return LOCAL.get().begin();
+    }
+
+    public RecordWriter begin() {
+        buffer.setLength(0);
+        firstField = true;
+        return this;
+    }
+
+    public RecordWriter writeString(String value) {
+        separator();
+        if (value != null) {
+            buffer.append(value);
+        }
+        return this;
+    }
+
+    public RecordWriter writeInt(int value) {
+        separator();
+        buffer.append(value);
+        return this;
+    }
+
+    public RecordWriter writeEnum(Enum<?> value) {
+        separator();
+        buffer.append(value.name());
+        return this;
+    }
+
+    // ISO yyyy-MM-dd, null yazılırsa alan boş kalır
+    public RecordWriter writeDate(LocalDate value) {
+        separator();
+        if (value != null) {
+            int year = value.getYear();
+            if (year < 0 || year > 9999) {
+                buffer.append(value);
+                return this;
+            }
+            appendPadded(year, 4);
+            buffer.append('-');
+            appendPadded(value.getMonthValue(), 2);
+            buffer.append('-');
+            appendPadded(value.getDayOfMonth(), 2);
+        }
+        return this;
+    }
+
+    // Copies the record (without line separator) into the writer
+    public void writeTo(Writer writer) throws IOException {
+        int length = buffer.length();
+        if (length > chars.length) {
+            chars = new char[Math.max(length, chars.length * 2)];
+        }
+        buffer.getChars(0, length, chars, 0);
+        writer.write(chars, 0, length);
+    }
+
+    public int length() {
+        return buffer.length();
+    }
+
+    @Override
+    public String toString() {
+        return buffer.toString();
+    }
+
+    private void appendPadded(int value, int width) {
+        int digits = value < 10 ? 1 : value < 100 ? 2 : value < 1000 ? 3 : 4;
+        for (int i = digits; i < width; i++) {
+            buffer.append('0');
+        }
+        buffer.append(value);
+    }
+
+    private void separator() {
+        if (firstField) {
+            firstField = false;
+        } else {
+            buffer.append(SEPARATOR);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.kidtask.utils;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+// Insertion-ordered map (like LinkedHashMap) whose state is one immutable View: a
+// PersistentHashMap from key to slot and a PersistentVector of entries in insertion
+// order. A write builds a new View (path copies only) and swaps it in, so reads take no
+// lock and a View someone holds never changes. A remove leaves an empty slot that reads
+// skip; remove() closes the gaps once empty slots outnumber entries, so every write stays
+// amortized O(log n) and handing out a View costs nothing. Writes are serialized on the map.
+public class SnapshotMap<K, V> extends AbstractMap<K, V> {
+    private volatile View<K, V> current = View.empty();
+    private int holes;
+
+    // One version of the map's contents
+    public static final class View<K, V> {
+        private static final View<?, ?> EMPTY = new View<>(PersistentHashMap.empty(), PersistentVector.empty());
+
+        private final PersistentHashMap<K, Integer> positions;
+        // Slot i: the i-th entry still in the map, or null where one was removed
+        private final PersistentVector<Map.Entry<K, V>> slots;
+        // values() of a View with empty slots, built on first use
+        private volatile List<V> liveValues;
+
+        private View(PersistentHashMap<K, Integer> positions, PersistentVector<Map.Entry<K, V>> slots) {
+            this.positions = positions;
+            this.slots = slots;
+        }
+
+        @SuppressWarnings("unchecked")
+        static <K, V> View<K, V> empty() {
+            return (View<K, V>) EMPTY;
+        }
+
+        public V get(Object key) {
+            Integer slot = positions.get(key);
+            return slot == null ? null : slots.get(slot).getValue();
+        }
+
+        public boolean containsKey(Object key) {
+            return positions.containsKey(key);
+        }
+
+        public int size() {
+            return positions.size();
+        }
+
+        // Read-only values in insertion order. Without empty slots this wraps the vector;
+        // otherwise the live values are copied once per View (the caller walks them anyway).
+        public List<V> values() {
+            if (positions.size() == slots.size()) {
+                return new Values<>(slots);
+            }
+            List<V> values = liveValues;
+            if (values == null) {
+                List<V> live = new ArrayList<>(positions.size());
+                forEachValue(live::add);
+                values = Collections.unmodifiableList(live);
+                liveValues = values;
+            }
+            return values;
+        }
+
+        public void forEachValue(Consumer<V> action) {
+            for (Map.Entry<K, V> entry : slots) {
+                if (entry != null) {
+                    action.accept(entry.getValue());
+                }
+            }
+        }
+
+        private View<K, V> compacted() {
+            PersistentHashMap<K, Integer> livePositions = PersistentHashMap.empty();
+            PersistentVector<Map.Entry<K, V>> live = PersistentVector.empty();
+            for (Map.Entry<K, V> entry : slots) {
+                if (entry != null) {
+                    livePositions = livePositions.plus(entry.getKey(), live.size());
+                    live = live.plus(entry);
+                }
+            }
+            return new View<>(livePositions, live);
+        }
+    }
+
+    @Override
+    public int size() {
+        return current.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return current.containsKey(key);
+    }
+
+    @Override
+    public V get(Object key) {
+        return current.get(key);
+    }
+
+    @Override
+    public synchronized V put(K key, V value) {
+        View<K, V> view = current;
+        Map.Entry<K, V> entry = new AbstractMap.SimpleImmutableEntry<>(key, value);
+        Integer slot = view.positions.get(key);
+        if (slot != null) {
+            current = new View<>(view.positions, view.slots.with(slot, entry));
+            return view.slots.get(slot).getValue();
+        }
+        current = new View<>(view.positions.plus(key, view.slots.size()), view.slots.plus(entry));
+        return null;
+    }
+
+    @Override
+    public synchronized V remove(Object key) {
+        View<K, V> view = current;
+        Integer slot = view.positions.get(key);
+        if (slot == null) {
+            return null;
+        }
+        V old = view.slots.get(slot).getValue();
+        View<K, V> next = new View<>(view.positions.minus(key), view.slots.with(slot, null));
+        // Boş slotlar kayıtlardan fazlaysa vektör baştan kurulur (toplu silmelerde amortize O(1))
+        if (++holes > next.size()) {
+            next = next.compacted();
+            holes = 0;
+        }
+        current = next;
+        return old;
+    }
+
+    @Override
+    public synchronized void clear() {
+        current = View.empty();
+        holes = 0;
+    }
+
+    // Current version; holding it is a consistent, unchanging read
+    public View<K, V> view() {
+        return current;
+    }
+
+    // Read-only values in insertion order as of this call; not affected by later writes
+    public List<V> snapshot() {
+        return view().values();
+    }
+
+    // Entries as of the call; iterating needs no lock and never sees a later write
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                Iterator<Map.Entry<K, V>> all = current.slots.iterator();
+                return new Iterator<Map.Entry<K, V>>() {
+                    private Map.Entry<K, V> next = advance();
+
+                    private Map.Entry<K, V> advance() {
+                        while (all.hasNext()) {
+                            Map.Entry<K, V> entry = all.next();
+                            if (entry != null) {
+                                return entry;
+                            }
+                        }
+                        return null;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return next != null;
+                    }
+
+                    @Override
+                    public Map.Entry<K, V> next() {
+                        if (next == null) {
+                            throw new NoSuchElementException();
+                        }
+                        Map.Entry<K, V> entry = next;
+                        next = advance();
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return SnapshotMap.this.size();
+            }
+        };
+    }
+
+    // Values in insertion order without building a list
+    public void forEachValue(Consumer<V> action) {
+        current.forEachValue(action);
+    }
+
+    private static final class Values<K, V> extends AbstractList<V> implements RandomAccess {
+        private final PersistentVector<Map.Entry<K, V>> slots;
+
+        private Values(PersistentVector<Map.Entry<K, V>> slots) {
+            this.slots = slots;
+        }
+
+        @Override
+        public V get(int index) {
+            return slots.get(index).getValue();
+        }
+
+        @Override
+        public int size() {
+            return slots.size();
+        }
+
+        @Override
+        public Iterator<V> iterator() {
+            Iterator<Map.Entry<K, V>> entries = slots.iterator();
+            return new Iterator<V>() {
+                @Override
+                public boolean hasNext() {
+                    return entries.hasNext();
+                }
+
+                @Override
+                public V next() {
+                    return entries.next().getValue();
+                }
+            };
+        }
+    }
+}
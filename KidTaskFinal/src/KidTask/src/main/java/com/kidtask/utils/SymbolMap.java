@@ -0,0 +1,46 @@
+package com.kidtask.utils;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+// Map keyed by SymbolTable ids. Ids are small and dense, so values sit in an array
+// (slot = id + 1, slot 0 holds NONE) instead of a hash map of boxed keys.
+// SymbolTable.UNKNOWN never has a value.
+final class SymbolMap<V> {
+    private Object[] values = new Object[8];
+
+    @SuppressWarnings("unchecked")
+    V get(int symbol) {
+        int slot = symbol + 1;
+        return slot >= 0 && slot < values.length ? (V) values[slot] : null;
+    }
+
+    V computeIfAbsent(int symbol, Supplier<V> factory) {
+        V value = get(symbol);
+        if (value == null) {
+            int slot = symbol + 1;
+            if (slot >= values.length) {
+                values = Arrays.copyOf(values, Math.max(values.length * 2, slot + 1));
+            }
+            value = factory.get();
+            values[slot] = value;
+        }
+        return value;
+    }
+
+    void remove(int symbol) {
+        int slot = symbol + 1;
+        if (slot >= 0 && slot < values.length) {
+            values[slot] = null;
+        }
+    }
+
+    void clear() {
+        Arrays.fill(values, null);
+    }
+
+    // One past the largest symbol that may have a value
+    int symbolLimit() {
+        return values.length - 1;
+    }
+}
@@ -0,0 +1,232 @@
+package com.kidtask.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Interns usernames as small ints (0, 1, 2...) so models, stores and indexes can keep an
+// int per reference instead of a String, and compare users with ==.
+// users() is the table shared by all models. DataManager attaches it to data/Symbols.txt
+// (one name per line, line number = id) so ids stay the same between runs and between
+// processes sharing the data directory.
+// null maps to NONE; find() returns UNKNOWN for names that were never interned.
+public class SymbolTable {
+    public static final int NONE = -1;
+    public static final int UNKNOWN = -2;
+    private static final SymbolTable USERS = new SymbolTable();
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    // Yazma kilit altında; okuma kilitsiz (volatile yayın)
+    private volatile String[] names = new String[16];
+    private int size;
+    private Path file;
+    private DataDirectoryLock directoryLock;
+    // Dosyanın okunmuş kısmı (byte); sonrasını başka süreçler eklemiş olabilir
+    private long fileLength;
+    // Dosyadaki satır sayısı (okunan + yazılan); id'ler satır numarasıdır
+    private int fileLines;
+    // beginLoad() çağrısı sayısı (iç içe yüklemeler için)
+    private int loading;
+
+    public static SymbolTable users() {
+        return USERS;
+    }
+
+    public int intern(String name) {
+        if (name == null) {
+            return NONE;
+        }
+        // Sık yol kilitsiz: paralel yükleme sırasında thread'ler burada beklemez
+        Integer id = ids.get(name);
+        return id != null ? id : add(name);
+    }
+
+    // Like intern() but never adds: UNKNOWN if the name was never interned
+    public int find(String name) {
+        if (name == null) {
+            return NONE;
+        }
+        Integer id = ids.get(name);
+        return id == null ? UNKNOWN : id;
+    }
+
+    public String name(int id) {
+        return id == NONE ? null : names[id];
+    }
+
+    // Interns the name and tells whether id stands for it here: its own id, or a repeated
+    // line of Symbols.txt with the same name. For files that store ids next to names.
+    public boolean internAs(String name, int id) {
+        if (intern(name) == id) {
+            return true;
+        }
+        String[] current = names;
+        return id >= 0 && id < size() && name.equals(current[id]);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    // Loads the saved names and appends every new name to the file from now on.
+    // Names interned before attach() keep their ids; the file is then rewritten to match.
+    public void attach(Path path, DataDirectoryLock directoryLock) {
+        directoryLock.lock();
+        try {
+            synchronized (this) {
+                this.file = null;
+                this.directoryLock = directoryLock;
+                boolean hadNames = size > 0;
+                fileLength = 0;
+                fileLines = 0;
+                try {
+                    if (!hadNames) {
+                        readTail(path);
+                    } else {
+                        if (Files.exists(path)) {
+                            for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                                addLocal(line);
+                            }
+                        }
+                        StringBuilder all = new StringBuilder();
+                        for (int i = 0; i < size; i++) {
+                            all.append(names[i]).append('\n');
+                        }
+                        byte[] bytes = all.toString().getBytes(StandardCharsets.UTF_8);
+                        Files.write(path, bytes);
+                        fileLength = bytes.length;
+                        fileLines = size;
+                    }
+                } catch (IOException e) {
+                    System.err.println("Error loading symbols: " + e.getMessage());
+                }
+                this.file = path;
+            }
+        } finally {
+            directoryLock.unlock();
+        }
+    }
+
+    // Parsing that holds the directory lock and hands chunks to worker threads
+    // (DataManager loads and refreshes) runs between these two calls: the workers add
+    // new names under the caller's lock instead of waiting for it, which would deadlock.
+    // endLoad() waits for an append in progress, so the caller still holds the lock
+    // until every name added for it is in the file.
+    public synchronized void beginLoad() {
+        if (!directoryLock.isHeldByCurrentThread()) {
+            throw new IllegalStateException("beginLoad without the data directory lock");
+        }
+        loading++;
+    }
+
+    public synchronized void endLoad() {
+        loading--;
+    }
+
+    // A new name gets the next line of the file, so its id is the same in every process.
+    // Like IdSequences.next: under the directory lock the names other processes appended
+    // since we last looked are added first, in file order, then ours is appended.
+    private int add(String name) {
+        DataDirectoryLock lock;
+        synchronized (this) {
+            Integer existing = ids.get(name);
+            if (existing != null) {
+                return existing;
+            }
+            if (file == null) {
+                return addLocal(name);
+            }
+            if (loading > 0) {
+                // Kilidi yüklemeyi yapan thread tutuyor (beginLoad)
+                return append(name);
+            }
+            lock = directoryLock;
+        }
+        lock.lock();
+        try {
+            return append(name);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Call with the directory lock held (by this thread or by the loading thread)
+    private synchronized int append(String name) {
+        try {
+            readTail(file);
+            Integer existing = ids.get(name);
+            if (existing != null) {
+                // Başka bir süreç aynı ismi eklemiş
+                return existing;
+            }
+            int id = addLocal(name);
+            byte[] line = (name + "\n").getBytes(StandardCharsets.UTF_8);
+            Files.write(file, line, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            fileLength += line.length;
+            fileLines++;
+            return id;
+        } catch (IOException e) {
+            System.err.println("Error saving symbol: " + e.getMessage());
+            return addLocal(name);
+        }
+    }
+
+    // Adds the names written to the file after fileLength (complete lines only). Every
+    // line takes the next id, blank and repeated ones too, so ids stay line numbers.
+    private void readTail(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        byte[] tail;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long end = channel.size();
+            if (end < fileLength) {
+                // Dosya yeniden yazılmış: baştan okunur, bildiğimiz satır sayısı kadarı atlanır
+                fileLength = 0;
+                fileLines = 0;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) (end - fileLength));
+            while (buffer.hasRemaining() && channel.read(buffer, fileLength + buffer.position()) >= 0) {
+                // Okumaya devam
+            }
+            tail = Arrays.copyOf(buffer.array(), buffer.position());
+        }
+        int start = 0;
+        for (int i = 0; i < tail.length; i++) {
+            if (tail[i] == '\n') {
+                String line = new String(tail, start, i - start, StandardCharsets.UTF_8);
+                // Yarım kalmış bir satır yeni bir isim gibi görünür; zararsız, isimler asıl veride
+                if (fileLines++ >= size) {
+                    addLine(line);
+                }
+                start = i + 1;
+            }
+        }
+        fileLength += start;
+    }
+
+    private synchronized int addLocal(String name) {
+        Integer existing = ids.get(name);
+        return existing != null ? existing : addLine(name);
+    }
+
+    // The next id for a line of the file; a repeated name keeps its first id
+    private synchronized int addLine(String name) {
+        int id = size;
+        String[] current = names;
+        if (id == current.length) {
+            current = Arrays.copyOf(current, id * 2);
+        }
+        current[id] = name;
+        names = current;
+        size++;
+        ids.putIfAbsent(name, id);
+        return id;
+    }
+}
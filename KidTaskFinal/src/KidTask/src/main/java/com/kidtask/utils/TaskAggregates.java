@@ -0,0 +1,278 @@
+package com.kidtask.utils;
+
+import com.kidtask.models.Task;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+// Running totals per assignee, per creator and per task type, kept up to date from the
+// TaskIndex change stream: every saved status/rating/points change subtracts the old
+// values and adds the new ones, so dashboards read progress and averages in O(1).
+//   completed: COMPLETED or FINALIZED (same rule as the progress bars)
+//   rating:    FINALIZED SCHOOL tasks with a rating above 0 (same rule as the level formula)
+public class TaskAggregates implements TaskIndex.Listener {
+    private final SymbolMap<Totals> byAssignee = new SymbolMap<>();
+    private final SymbolMap<Totals> byCreator = new SymbolMap<>();
+    private final Map<Task.TaskType, Totals> byType = new EnumMap<>(Task.TaskType.class);
+
+    public static final class Totals {
+        private int total;
+        private int completed;
+        private int completedPoints;
+        private int ratingSum;
+        private int ratedCount;
+
+        private Totals() {
+        }
+
+        private Totals(Totals other) {
+            this.total = other.total;
+            this.completed = other.completed;
+            this.completedPoints = other.completedPoints;
+            this.ratingSum = other.ratingSum;
+            this.ratedCount = other.ratedCount;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public int getCompleted() {
+            return completed;
+        }
+
+        // 0-1 arası; hiç görev yoksa 0
+        public double getCompletionRate() {
+            return total == 0 ? 0 : (double) completed / total;
+        }
+
+        public int getCompletedPoints() {
+            return completedPoints;
+        }
+
+        public int getRatingSum() {
+            return ratingSum;
+        }
+
+        public int getRatedCount() {
+            return ratedCount;
+        }
+
+        public double getAverageRating() {
+            return ratedCount == 0 ? 0.0 : (double) ratingSum / ratedCount;
+        }
+
+        // Sum of two groups of tasks (e.g. the loaded ones and the archived ones)
+        public Totals plus(Totals other) {
+            Totals sum = new Totals(this);
+            sum.total += other.total;
+            sum.completed += other.completed;
+            sum.completedPoints += other.completedPoints;
+            sum.ratingSum += other.ratingSum;
+            sum.ratedCount += other.ratedCount;
+            return sum;
+        }
+
+        private void apply(TaskIndex.Entry entry, int sign) {
+            total += sign;
+            if (isCompleted(entry)) {
+                completed += sign;
+                completedPoints += sign * entry.getPoints();
+            }
+            if (isRated(entry)) {
+                ratingSum += sign * entry.getRating();
+                ratedCount += sign;
+            }
+        }
+
+        private void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(total);
+            out.writeInt(completed);
+            out.writeInt(completedPoints);
+            out.writeInt(ratingSum);
+            out.writeInt(ratedCount);
+        }
+
+        private static Totals readFrom(ByteBuffer in) {
+            Totals totals = new Totals();
+            totals.total = in.getInt();
+            totals.completed = in.getInt();
+            totals.completedPoints = in.getInt();
+            totals.ratingSum = in.getInt();
+            totals.ratedCount = in.getInt();
+            return totals;
+        }
+
+        private boolean sameAs(Totals other) {
+            return total == other.total && completed == other.completed
+                    && completedPoints == other.completedPoints
+                    && ratingSum == other.ratingSum && ratedCount == other.ratedCount;
+        }
+
+        @Override
+        public String toString() {
+            return "total=" + total + ", completed=" + completed + ", points=" + completedPoints
+                    + ", ratingSum=" + ratingSum + ", rated=" + ratedCount;
+        }
+    }
+
+    private static final Totals EMPTY = new Totals();
+
+    private static boolean isCompleted(TaskIndex.Entry entry) {
+        return entry.getStatus() == Task.TaskStatus.COMPLETED || entry.getStatus() == Task.TaskStatus.FINALIZED;
+    }
+
+    private static boolean isRated(TaskIndex.Entry entry) {
+        return entry.getType() == Task.TaskType.SCHOOL && entry.getStatus() == Task.TaskStatus.FINALIZED
+                && entry.getRating() > 0;
+    }
+
+    // Returned Totals are copies; they do not change when tasks are saved later
+    public Totals forAssignee(String assignee) {
+        return copyOf(byAssignee.get(SymbolTable.users().find(assignee)));
+    }
+
+    public Totals forCreator(String creator) {
+        return copyOf(byCreator.get(SymbolTable.users().find(creator)));
+    }
+
+    public Totals forType(Task.TaskType type) {
+        return copyOf(byType.get(type));
+    }
+
+    @Override
+    public void added(TaskIndex.Entry entry) {
+        apply(entry, 1);
+    }
+
+    @Override
+    public void replaced(TaskIndex.Entry old, TaskIndex.Entry entry) {
+        apply(old, -1);
+        apply(entry, 1);
+    }
+
+    @Override
+    public void removed(TaskIndex.Entry entry) {
+        apply(entry, -1);
+    }
+
+    @Override
+    public void cleared() {
+        byAssignee.clear();
+        byCreator.clear();
+        byType.clear();
+    }
+
+    // Recomputes everything from the given tasks and returns the differences (empty = consistent)
+    public List<String> verify(TaskStore tasks) {
+        TaskAggregates expected = new TaskAggregates();
+        tasks.forEach(task -> expected.added(new TaskIndex.Entry(task)));
+        List<String> problems = new ArrayList<>();
+        compareUsers("assignee", expected.byAssignee, byAssignee, problems);
+        compareUsers("creator", expected.byCreator, byCreator, problems);
+        compare("type", expected.byType, byType, problems);
+        return problems;
+    }
+
+    // Snapshot encoding: assignee and creator totals as (SymbolTable id, totals) pairs,
+    // then type totals as (ordinal, totals) pairs, each list preceded by its length
+    void writeTo(DataOutputStream out) throws IOException {
+        writeUsers(out, byAssignee);
+        writeUsers(out, byCreator);
+        out.writeInt(byType.size());
+        for (Map.Entry<Task.TaskType, Totals> entry : byType.entrySet()) {
+            out.writeInt(entry.getKey().ordinal());
+            entry.getValue().writeTo(out);
+        }
+    }
+
+    void readFrom(ByteBuffer in) {
+        cleared();
+        readUsers(in, byAssignee);
+        readUsers(in, byCreator);
+        Task.TaskType[] types = Task.TaskType.values();
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            Task.TaskType type = types[in.getInt()];
+            byType.put(type, Totals.readFrom(in));
+        }
+    }
+
+    private static void writeUsers(DataOutputStream out, SymbolMap<Totals> totals) throws IOException {
+        int count = 0;
+        for (int user = SymbolTable.NONE; user < totals.symbolLimit(); user++) {
+            if (totals.get(user) != null) {
+                count++;
+            }
+        }
+        out.writeInt(count);
+        for (int user = SymbolTable.NONE; user < totals.symbolLimit(); user++) {
+            Totals values = totals.get(user);
+            if (values != null) {
+                out.writeInt(user);
+                values.writeTo(out);
+            }
+        }
+    }
+
+    private static void readUsers(ByteBuffer in, SymbolMap<Totals> totals) {
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            int user = in.getInt();
+            Totals values = Totals.readFrom(in);
+            totals.computeIfAbsent(user, () -> values);
+        }
+    }
+
+    private void apply(TaskIndex.Entry entry, int sign) {
+        updateUser(byAssignee, entry.getAssigneeId(), entry, sign);
+        updateUser(byCreator, entry.getCreatorId(), entry, sign);
+        update(byType, entry.getType(), entry, sign);
+    }
+
+    private static <K> void update(Map<K, Totals> totals, K key, TaskIndex.Entry entry, int sign) {
+        Totals values = totals.computeIfAbsent(key, k -> new Totals());
+        values.apply(entry, sign);
+        if (values.total == 0) {
+            totals.remove(key);
+        }
+    }
+
+    private static void updateUser(SymbolMap<Totals> totals, int user, TaskIndex.Entry entry, int sign) {
+        Totals values = totals.computeIfAbsent(user, Totals::new);
+        values.apply(entry, sign);
+        if (values.total == 0) {
+            totals.remove(user);
+        }
+    }
+
+    private static void compareUsers(String kind, SymbolMap<Totals> expected, SymbolMap<Totals> actual,
+                                     List<String> problems) {
+        int limit = Math.max(expected.symbolLimit(), actual.symbolLimit());
+        for (int user = SymbolTable.NONE; user < limit; user++) {
+            Totals want = expected.get(user) == null ? EMPTY : expected.get(user);
+            Totals got = actual.get(user) == null ? EMPTY : actual.get(user);
+            if (!want.sameAs(got)) {
+                problems.add(kind + " " + SymbolTable.users().name(user) + ": expected [" + want
+                        + "] but was [" + got + "]");
+            }
+        }
+    }
+
+    private static <K> void compare(String kind, Map<K, Totals> expected, Map<K, Totals> actual, List<String> problems) {
+        Set<K> keys = new HashSet<>(expected.keySet());
+        keys.addAll(actual.keySet());
+        for (K key : keys) {
+            Totals want = expected.getOrDefault(key, EMPTY);
+            Totals got = actual.getOrDefault(key, EMPTY);
+            if (!want.sameAs(got)) {
+                problems.add(kind + " " + key + ": expected [" + want + "] but was [" + got + "]");
+            }
+        }
+    }
+
+    private static Totals copyOf(Totals totals) {
+        return new Totals(totals == null ? EMPTY : totals);
+    }
+}
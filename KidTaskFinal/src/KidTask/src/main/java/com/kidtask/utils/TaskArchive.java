@@ -0,0 +1,404 @@
+package com.kidtask.utils;
+
+import com.kidtask.models.Task;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Cold storage for finished tasks. DataManager moves COMPLETED/FINALIZED tasks whose due
+// date is older than kidtask.archiveAfterDays out of the task files into two files:
+//   Archive.dat: append-only blocks, each a header (magic, byte length, task count) and
+//                a GZIP'ed run of task records in the Tasks.txt format, sorted by due date
+//   Archive.idx: the user names in SymbolTable id order, per block its file range, id
+//                range, due-date range and assignees, then the ids and totals of
+//                every archived task
+// Assignees and totals use SymbolTable ids; if a name no longer has the id it
+// had when the index was written (Symbols.txt lost or renumbered), the index is rebuilt
+// from the blocks, whose rows hold the names.
+// Only Archive.idx is read at start, so dashboard totals still include the
+// archived tasks; the tasks themselves are read one block at a time by history queries.
+// Blocks are never rewritten; archived rows are self-contained (no template references).
+public class TaskArchive {
+    private static final int MAGIC = 0x4B544149; // "KTAI"
+    private static final int VERSION = 3;
+    private static final int BLOCK_MAGIC = 0x4B544142; // "KTAB"
+    private static final int BLOCK_HEADER = 12;
+    // Blok başına görev sayısı: bir geçmiş sorgusu en fazla bu kadar satırı gereksiz açar
+    private static final int BLOCK_TASKS = 4096;
+
+    private final Path dataFile;
+    private final Path indexFile;
+    private final List<Block> blocks = new ArrayList<>();
+    // Arşivdeki görev id'leri
+    private final BitSet archivedIds = new BitSet();
+    private final TaskAggregates aggregates = new TaskAggregates();
+    private long end;
+    private int maxId;
+
+    private static final class Block {
+        long offset;
+        int length;
+        int count;
+        int minId = Integer.MAX_VALUE;
+        int maxId = Integer.MIN_VALUE;
+        int firstDay = Integer.MAX_VALUE;
+        int lastDay = Integer.MIN_VALUE;
+        // Sorted SymbolTable ids of the assignees in the block
+        int[] assignees;
+        // Collected while the block is built, turned into assignees by finish
+        Set<Integer> seen = new TreeSet<>();
+
+        boolean overlaps(int fromDay, int toDay) {
+            return firstDay <= toDay && lastDay >= fromDay;
+        }
+
+        boolean hasAssignee(int assigneeId) {
+            return assigneeId == SymbolTable.NONE || Arrays.binarySearch(assignees, assigneeId) >= 0;
+        }
+    }
+
+    public TaskArchive(Path dataFile, Path indexFile) {
+        this.dataFile = dataFile;
+        this.indexFile = indexFile;
+    }
+
+    // Reads Archive.idx. A missing or damaged index is rebuilt from Archive.dat; blocks
+    // past the indexed end (a crash before the index was written) are cut off.
+    public synchronized void open() throws IOException {
+        clear();
+        if (!Files.exists(dataFile)) {
+            return;
+        }
+        if (!readIndex()) {
+            clear();
+            rebuildIndex();
+            writeIndex();
+        }
+        try (FileChannel channel = FileChannel.open(dataFile, StandardOpenOption.WRITE)) {
+            if (channel.size() > end) {
+                channel.truncate(end);
+            }
+        }
+    }
+
+    // Appends the tasks (all with a due date) as new blocks and commits them by rewriting
+    // the index. The caller removes the tasks from the hot files afterwards; until then
+    // isArchived tells which hot tasks are already safe in the archive.
+    public synchronized void append(Collection<Task> finished) throws IOException {
+        if (finished.isEmpty()) {
+            return;
+        }
+        List<Task> sorted = new ArrayList<>(finished);
+        sorted.sort(Comparator.comparing(Task::getDueDate).thenComparingInt(Task::getId));
+        try (FileChannel channel = FileChannel.open(dataFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            channel.position(end);
+            OutputStream out = Channels.newOutputStream(channel);
+            for (int from = 0; from < sorted.size(); from += BLOCK_TASKS) {
+                List<Task> chunk = sorted.subList(from, Math.min(sorted.size(), from + BLOCK_TASKS));
+                byte[] body = compress(chunk);
+                ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER);
+                header.putInt(BLOCK_MAGIC).putInt(body.length).putInt(chunk.size());
+                out.write(header.array());
+                out.write(body);
+
+                Block block = new Block();
+                block.offset = end;
+                block.length = body.length;
+                for (Task task : chunk) {
+                    track(block, task);
+                }
+                finish(block);
+                end += BLOCK_HEADER + body.length;
+            }
+            // Blok verisi diskte olmadan index onları göstermesin
+            channel.force(true);
+        }
+        try {
+            writeIndex();
+        } catch (IOException e) {
+            // Yazılamayan index'teki bloklar hiç eklenmemiş sayılır
+            open();
+            throw e;
+        }
+    }
+
+    public synchronized boolean isArchived(int id) {
+        return id >= 0 && archivedIds.get(id);
+    }
+
+    public synchronized int size() {
+        int count = 0;
+        for (Block block : blocks) {
+            count += block.count;
+        }
+        return count;
+    }
+
+    // Highest archived task id (0 if none), so ids are not handed out again
+    public synchronized int maxId() {
+        return maxId;
+    }
+
+    public synchronized TaskAggregates.Totals forAssignee(String assignee) {
+        return aggregates.forAssignee(assignee);
+    }
+
+    public synchronized TaskAggregates.Totals forCreator(String creator) {
+        return aggregates.forCreator(creator);
+    }
+
+    public synchronized TaskAggregates.Totals forType(Task.TaskType type) {
+        return aggregates.forType(type);
+    }
+
+    // Archived tasks of the assignee (null = everyone) due between from and to (inclusive,
+    // null = open); only blocks whose index entry can match are decompressed
+    public synchronized void scan(String assignee, LocalDate from, LocalDate to, Consumer<Task> action)
+            throws IOException {
+        int assigneeId = assignee == null ? SymbolTable.NONE : SymbolTable.users().find(assignee);
+        if (assigneeId == SymbolTable.UNKNOWN || blocks.isEmpty()) {
+            return;
+        }
+        int fromDay = from == null ? Integer.MIN_VALUE : (int) from.toEpochDay();
+        int toDay = to == null ? Integer.MAX_VALUE : (int) to.toEpochDay();
+        try (FileChannel channel = FileChannel.open(dataFile, StandardOpenOption.READ)) {
+            for (Block block : blocks) {
+                if (!block.overlaps(fromDay, toDay) || !block.hasAssignee(assigneeId)) {
+                    continue;
+                }
+                for (Task task : readBlock(channel, block)) {
+                    int day = (int) task.getDueDate().toEpochDay();
+                    if (day >= fromDay && day <= toDay
+                            && (assignee == null || task.getAssigneeId() == assigneeId)) {
+                        action.accept(task);
+                    }
+                }
+            }
+        }
+    }
+
+    private void clear() {
+        blocks.clear();
+        archivedIds.clear();
+        aggregates.cleared();
+        end = 0;
+        maxId = 0;
+    }
+
+    private void track(Block block, Task task) {
+        block.count++;
+        block.minId = Math.min(block.minId, task.getId());
+        block.maxId = Math.max(block.maxId, task.getId());
+        int day = (int) task.getDueDate().toEpochDay();
+        block.firstDay = Math.min(block.firstDay, day);
+        block.lastDay = Math.max(block.lastDay, day);
+        block.seen.add(task.getAssigneeId());
+        TaskIndex.Entry entry = new TaskIndex.Entry(task);
+        archivedIds.set(task.getId());
+        aggregates.added(entry);
+        maxId = Math.max(maxId, task.getId());
+    }
+
+    private void finish(Block block) {
+        block.assignees = block.seen.stream().mapToInt(Integer::intValue).toArray();
+        block.seen = null;
+        blocks.add(block);
+    }
+
+    private static byte[] compress(List<Task> tasks) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        RecordWriter record = new RecordWriter();
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(bytes), StandardCharsets.UTF_8))) {
+            for (Task task : tasks) {
+                standalone(task).write(record.begin());
+                record.writeTo(writer);
+                writer.write('\n');
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    // Şablonlu görevler arşive tam satır olarak yazılır (şablon daha sonra silinebilir)
+    private static Task standalone(Task task) {
+        if (task.getTemplate() == null) {
+            return task;
+        }
+        return new Task(task.getId(), task.getTitle(), task.getDescription(), task.getPoints(), task.getStatus(),
+                task.getType(), task.getAssignee(), task.getCreator(), task.getRating(), task.getDueDate());
+    }
+
+    private List<Task> readBlock(FileChannel channel, Block block) throws IOException {
+        ByteBuffer body = ByteBuffer.allocate(block.length);
+        long position = block.offset + BLOCK_HEADER;
+        while (body.hasRemaining()) {
+            int read = channel.read(body, position + body.position());
+            if (read < 0) {
+                throw new EOFException("Archive block at " + block.offset + " is cut off");
+            }
+        }
+        return parse(body.array(), block.count);
+    }
+
+    private static List<Task> parse(byte[] body, int count) throws IOException {
+        List<Task> tasks = new ArrayList<>(count);
+        RecordReader reader = new RecordReader();
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(body)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                tasks.add(Task.read(reader.reset(line)));
+            }
+        }
+        return tasks;
+    }
+
+    private boolean readIndex() {
+        if (!Files.exists(indexFile)) {
+            return false;
+        }
+        try {
+            ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(indexFile));
+            if (in.remaining() < 8 || in.getInt() != MAGIC || in.getInt() != VERSION) {
+                System.err.println("Rebuilding archive index: unknown format");
+                return false;
+            }
+            end = in.getLong();
+            maxId = in.getInt();
+            int symbolCount = in.getInt();
+            for (int id = 0; id < symbolCount; id++) {
+                if (!SymbolTable.users().internAs(readString(in), id)) {
+                    System.err.println("Rebuilding archive index: user ids changed");
+                    return false;
+                }
+            }
+            int count = in.getInt();
+            for (int i = 0; i < count; i++) {
+                Block block = new Block();
+                block.offset = in.getLong();
+                block.length = in.getInt();
+                block.count = in.getInt();
+                block.minId = in.getInt();
+                block.maxId = in.getInt();
+                block.firstDay = in.getInt();
+                block.lastDay = in.getInt();
+                block.seen = null;
+                block.assignees = new int[in.getInt()];
+                for (int j = 0; j < block.assignees.length; j++) {
+                    block.assignees[j] = in.getInt();
+                }
+                blocks.add(block);
+            }
+            long[] words = new long[in.getInt()];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = in.getLong();
+            }
+            archivedIds.or(BitSet.valueOf(words));
+            aggregates.readFrom(in);
+            if (Files.size(dataFile) < end) {
+                System.err.println("Rebuilding archive index: " + dataFile.getFileName() + " is shorter than indexed");
+                return false;
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Rebuilding archive index: " + e);
+            return false;
+        }
+    }
+
+    // Walks the block headers of Archive.dat and re-reads every block; stops at the first
+    // incomplete or unreadable block (the rest is cut off by open)
+    private void rebuildIndex() throws IOException {
+        try (FileChannel channel = FileChannel.open(dataFile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER);
+            while (end + BLOCK_HEADER <= size) {
+                header.clear();
+                channel.read(header, end);
+                header.flip();
+                if (header.remaining() < BLOCK_HEADER || header.getInt() != BLOCK_MAGIC) {
+                    break;
+                }
+                Block block = new Block();
+                block.offset = end;
+                block.length = header.getInt();
+                block.count = 0;
+                int expected = header.getInt();
+                if (block.length < 0 || end + BLOCK_HEADER + block.length > size) {
+                    break;
+                }
+                List<Task> tasks;
+                try {
+                    tasks = readBlock(channel, block);
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("Archive block at " + end + " is unreadable: " + e.getMessage());
+                    break;
+                }
+                if (tasks.size() != expected) {
+                    break;
+                }
+                for (Task task : tasks) {
+                    track(block, task);
+                }
+                finish(block);
+                end += BLOCK_HEADER + block.length;
+            }
+        }
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void writeIndex() throws IOException {
+        Path tmp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(end);
+            out.writeInt(maxId);
+            SymbolTable symbols = SymbolTable.users();
+            int symbolCount = symbols.size();
+            out.writeInt(symbolCount);
+            for (int id = 0; id < symbolCount; id++) {
+                byte[] name = symbols.name(id).getBytes(StandardCharsets.UTF_8);
+                out.writeInt(name.length);
+                out.write(name);
+            }
+            out.writeInt(blocks.size());
+            for (Block block : blocks) {
+                out.writeLong(block.offset);
+                out.writeInt(block.length);
+                out.writeInt(block.count);
+                out.writeInt(block.minId);
+                out.writeInt(block.maxId);
+                out.writeInt(block.firstDay);
+                out.writeInt(block.lastDay);
+                out.writeInt(block.assignees.length);
+                for (int assignee : block.assignees) {
+                    out.writeInt(assignee);
+                }
+            }
+            long[] words = archivedIds.toLongArray();
+            out.writeInt(words.length);
+            for (long word : words) {
+                out.writeLong(word);
+            }
+            aggregates.writeTo(out);
+        }
+        try {
+            Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
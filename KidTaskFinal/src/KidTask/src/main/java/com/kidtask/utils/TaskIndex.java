@@ -0,0 +1,268 @@
+package com.kidtask.utils;
+
+import com.kidtask.models.Task;
+import java.time.LocalDate;
+import java.util.*;
+
+// Secondary indexes over tasks: assignee, creator, status, type and template -> task ids.
+// Views change a Task in place (setStatus, setRating...) and then call saveTask, so the
+// object no longer tells us where it was indexed. Each task's indexed values are kept in
+// an Entry and used to move the id out of the old postings.
+public class TaskIndex {
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    // Kullanıcılar SymbolTable.users() id'si ile
+    private final SymbolMap<Set<Integer>> byAssignee = new SymbolMap<>();
+    private final SymbolMap<Set<Integer>> byCreator = new SymbolMap<>();
+    private final Map<Task.TaskStatus, Set<Integer>> byStatus = new EnumMap<>(Task.TaskStatus.class);
+    private final Map<Task.TaskType, Set<Integer>> byType = new EnumMap<>(Task.TaskType.class);
+    // Sadece şablondan verilen görevler
+    private final Map<Integer, Set<Integer>> byTemplate = new HashMap<>();
+    private final List<Listener> listeners = new ArrayList<>();
+
+    // Other task indexes (aggregates, due dates) follow the same change stream.
+    // replaced() is also called when only rating/points/due date changed and the postings did not move.
+    public interface Listener {
+        void added(Entry entry);
+
+        void replaced(Entry old, Entry entry);
+
+        void removed(Entry entry);
+
+        void cleared();
+    }
+
+    // Values a task was indexed under
+    public static final class Entry {
+        private final int id;
+        private final int assignee;
+        private final int creator;
+        private final Task.TaskStatus status;
+        private final Task.TaskType type;
+        private final int template;
+        private final int rating;
+        private final int points;
+        private final LocalDate dueDate;
+
+        Entry(Task task) {
+            this.id = task.getId();
+            this.assignee = task.getAssigneeId();
+            this.creator = task.getCreatorId();
+            this.status = task.getStatus();
+            this.type = task.getType();
+            this.template = task.getTemplateId();
+            this.rating = task.getRating();
+            this.points = task.getPoints();
+            this.dueDate = task.getDueDate();
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public int getAssigneeId() {
+            return assignee;
+        }
+
+        public int getCreatorId() {
+            return creator;
+        }
+
+        public String getAssignee() {
+            return SymbolTable.users().name(assignee);
+        }
+
+        public String getCreator() {
+            return SymbolTable.users().name(creator);
+        }
+
+        public Task.TaskStatus getStatus() {
+            return status;
+        }
+
+        public Task.TaskType getType() {
+            return type;
+        }
+
+        // 0 when the task has no template
+        public int getTemplateId() {
+            return template;
+        }
+
+        public int getRating() {
+            return rating;
+        }
+
+        public int getPoints() {
+            return points;
+        }
+
+        public LocalDate getDueDate() {
+            return dueDate;
+        }
+
+        private boolean sameKeys(Task task) {
+            return assignee == task.getAssigneeId()
+                    && creator == task.getCreatorId()
+                    && status == task.getStatus()
+                    && type == task.getType()
+                    && template == task.getTemplateId();
+        }
+
+        private boolean sameValues(Task task) {
+            return sameKeys(task) && rating == task.getRating() && points == task.getPoints()
+                    && Objects.equals(dueDate, task.getDueDate());
+        }
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void rebuild(TaskStore tasks) {
+        rebuild(tasks, Collections.emptySet());
+    }
+
+    // Rebuild where some listeners already hold the state for these tasks (restored from
+    // a snapshot): they get neither cleared() nor the added() calls
+    public void rebuild(TaskStore tasks, Set<Listener> restored) {
+        entries.clear();
+        byAssignee.clear();
+        byCreator.clear();
+        byStatus.clear();
+        byType.clear();
+        byTemplate.clear();
+        List<Listener> notified = new ArrayList<>(listeners);
+        notified.removeAll(restored);
+        for (Listener listener : notified) {
+            listener.cleared();
+        }
+        tasks.forEach(task -> {
+            Entry entry = new Entry(task);
+            Integer id = entry.id;
+            entries.put(id, entry);
+            link(entry);
+            for (Listener listener : notified) {
+                listener.added(entry);
+            }
+        });
+    }
+
+    public void update(Task task) {
+        Entry old = entries.get(task.getId());
+        if (old != null && old.sameValues(task)) {
+            return;
+        }
+        Entry entry = new Entry(task);
+        entries.put(entry.id, entry);
+        if (old == null) {
+            link(entry);
+            for (Listener listener : listeners) {
+                listener.added(entry);
+            }
+            return;
+        }
+        // Sadece puan/rating/tarih değiştiyse posting listeleri yerinde kalır
+        if (!old.sameKeys(task)) {
+            unlink(old);
+            link(entry);
+        }
+        for (Listener listener : listeners) {
+            listener.replaced(old, entry);
+        }
+    }
+
+    public void remove(int id) {
+        Entry old = entries.remove(id);
+        if (old != null) {
+            unlink(old);
+            for (Listener listener : listeners) {
+                listener.removed(old);
+            }
+        }
+    }
+
+    public Entry getEntry(int id) {
+        return entries.get(id);
+    }
+
+    public Set<Integer> allIds() {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+
+    // Posting lists are live read-only views; copy them before saving tasks while iterating
+    public Set<Integer> byAssignee(String assignee) {
+        return byAssignee(SymbolTable.users().find(assignee));
+    }
+
+    public Set<Integer> byAssignee(int assigneeId) {
+        return view(byAssignee.get(assigneeId));
+    }
+
+    public Set<Integer> byCreator(String creator) {
+        return byCreator(SymbolTable.users().find(creator));
+    }
+
+    public Set<Integer> byCreator(int creatorId) {
+        return view(byCreator.get(creatorId));
+    }
+
+    public Set<Integer> byStatus(Task.TaskStatus status) {
+        return view(byStatus.get(status));
+    }
+
+    public Set<Integer> byType(Task.TaskType type) {
+        return view(byType.get(type));
+    }
+
+    // Every kid's task created from one template
+    public Set<Integer> byTemplate(int templateId) {
+        return view(byTemplate.get(templateId));
+    }
+
+    private void link(Entry entry) {
+        // Tek kutulama: tüm listeler aynı Integer'ı paylaşır
+        Integer id = entry.id;
+        byAssignee.computeIfAbsent(entry.assignee, LinkedHashSet::new).add(id);
+        byCreator.computeIfAbsent(entry.creator, LinkedHashSet::new).add(id);
+        byStatus.computeIfAbsent(entry.status, k -> new LinkedHashSet<>()).add(id);
+        byType.computeIfAbsent(entry.type, k -> new LinkedHashSet<>()).add(id);
+        if (entry.template != 0) {
+            byTemplate.computeIfAbsent(entry.template, k -> new LinkedHashSet<>()).add(id);
+        }
+    }
+
+    private void unlink(Entry entry) {
+        removeUserPosting(byAssignee, entry.assignee, entry.id);
+        removeUserPosting(byCreator, entry.creator, entry.id);
+        removePosting(byStatus, entry.status, entry.id);
+        removePosting(byType, entry.type, entry.id);
+        if (entry.template != 0) {
+            removePosting(byTemplate, entry.template, entry.id);
+        }
+    }
+
+    private static <K> void removePosting(Map<K, Set<Integer>> index, K key, int id) {
+        Set<Integer> ids = index.get(key);
+        if (ids != null) {
+            ids.remove(id);
+            // Boş listeleri tutma (ör. silinen kullanıcılar)
+            if (ids.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static void removeUserPosting(SymbolMap<Set<Integer>> index, int user, int id) {
+        Set<Integer> ids = index.get(user);
+        if (ids != null) {
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                index.remove(user);
+            }
+        }
+    }
+
+    private static Set<Integer> view(Set<Integer> ids) {
+        return ids == null ? Collections.emptySet() : Collections.unmodifiableSet(ids);
+    }
+}
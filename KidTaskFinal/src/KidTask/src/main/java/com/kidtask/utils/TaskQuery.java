@@ -0,0 +1,261 @@
+package com.kidtask.utils;
+
+import com.kidtask.models.Task;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+
+// Task query builder, run through DataManager.query():
+//   TaskQuery.tasks().assignee("kid1").type(SCHOOL).status(FINALIZED).orderByDueDate().limit(10)
+// The planner drives the query from the smallest matching posting list, probes the other
+// indexed predicates with contains(), and only loads tasks that pass every index.
+// Due date range and where() are checked on the loaded task.
+public class TaskQuery {
+    private static volatile Consumer<Stats> statsListener;
+
+    private String assignee;
+    private boolean hasAssignee;
+    private String creator;
+    private boolean hasCreator;
+    private EnumSet<Task.TaskStatus> statuses;
+    private Task.TaskType type;
+    private int template;
+    private LocalDate dueFrom;
+    private LocalDate dueTo;
+    private Predicate<Task> filter;
+    private Comparator<Task> order;
+    private int limit = -1;
+    private Stats lastStats;
+
+    public static TaskQuery tasks() {
+        return new TaskQuery();
+    }
+
+    // Called with the stats of every executed query, e.g. to log dashboard queries
+    public static void setStatsListener(Consumer<Stats> listener) {
+        statsListener = listener;
+    }
+
+    public TaskQuery assignee(String assignee) {
+        this.assignee = assignee;
+        this.hasAssignee = true;
+        return this;
+    }
+
+    public TaskQuery creator(String creator) {
+        this.creator = creator;
+        this.hasCreator = true;
+        return this;
+    }
+
+    // Birden fazla status verilirse herhangi biri eşleşir
+    public TaskQuery status(Task.TaskStatus first, Task.TaskStatus... rest) {
+        this.statuses = EnumSet.of(first, rest);
+        return this;
+    }
+
+    public TaskQuery type(Task.TaskType type) {
+        this.type = type;
+        return this;
+    }
+
+    // Tasks created from the given TaskTemplate (one per kid)
+    public TaskQuery template(int templateId) {
+        this.template = templateId;
+        return this;
+    }
+
+    // Inclusive on both ends, null means open. Tasks without a due date never match.
+    public TaskQuery dueBetween(LocalDate from, LocalDate to) {
+        this.dueFrom = from;
+        this.dueTo = to;
+        return this;
+    }
+
+    public TaskQuery where(Predicate<Task> predicate) {
+        this.filter = filter == null ? predicate : filter.and(predicate);
+        return this;
+    }
+
+    // Tarihsiz görevler sona
+    public TaskQuery orderByDueDate() {
+        return orderBy(Comparator.comparing(Task::getDueDate, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparingInt(Task::getId));
+    }
+
+    public TaskQuery orderBy(Comparator<Task> comparator) {
+        this.order = comparator;
+        return this;
+    }
+
+    public TaskQuery limit(int limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    // Stats of the last execution of this query (null before the first one)
+    public Stats getStats() {
+        return lastStats;
+    }
+
+    // One indexed equality predicate: its posting list(s) and a printable name
+    private static final class IndexPredicate {
+        private final String name;
+        private final List<Set<Integer>> postings;
+        private final int size;
+
+        private IndexPredicate(String name, List<Set<Integer>> postings) {
+            this.name = name;
+            this.postings = postings;
+            int total = 0;
+            for (Set<Integer> ids : postings) {
+                total += ids.size();
+            }
+            this.size = total;
+        }
+
+        private boolean contains(Integer id) {
+            for (Set<Integer> ids : postings) {
+                if (ids.contains(id)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    List<Task> execute(TaskIndex index, IntFunction<Task> lookup) {
+        long start = System.nanoTime();
+        List<IndexPredicate> predicates = new ArrayList<>();
+        if (hasAssignee) {
+            predicates.add(new IndexPredicate("assignee=" + assignee, List.of(index.byAssignee(assignee))));
+        }
+        if (hasCreator) {
+            predicates.add(new IndexPredicate("creator=" + creator, List.of(index.byCreator(creator))));
+        }
+        if (type != null) {
+            predicates.add(new IndexPredicate("type=" + type, List.of(index.byType(type))));
+        }
+        if (template != 0) {
+            predicates.add(new IndexPredicate("template=" + template, List.of(index.byTemplate(template))));
+        }
+        if (statuses != null) {
+            List<Set<Integer>> postings = new ArrayList<>();
+            for (Task.TaskStatus status : statuses) {
+                postings.add(index.byStatus(status));
+            }
+            String name = statuses.size() == 1 ? "status=" + statuses.iterator().next() : "status in " + statuses;
+            predicates.add(new IndexPredicate(name, postings));
+        }
+
+        // En seçici index sürücü olur, diğerleri contains() ile kontrol edilir
+        predicates.sort(Comparator.comparingInt(p -> p.size));
+        IndexPredicate driver = predicates.isEmpty() ? null : predicates.remove(0);
+        Stats stats = new Stats();
+        stats.plan = describePlan(driver, predicates);
+
+        boolean earlyStop = order == null && limit >= 0;
+        List<Task> result = new ArrayList<>();
+        List<Set<Integer>> sources = driver == null ? List.of(index.allIds()) : driver.postings;
+        outer:
+        for (Set<Integer> ids : sources) {
+            for (Integer id : ids) {
+                stats.candidates++;
+                boolean match = true;
+                for (IndexPredicate predicate : predicates) {
+                    if (!predicate.contains(id)) {
+                        match = false;
+                        break;
+                    }
+                }
+                if (!match) {
+                    continue;
+                }
+                Task task = lookup.apply(id);
+                stats.rowsTouched++;
+                if (task == null || !matchesResidual(task)) {
+                    continue;
+                }
+                result.add(task);
+                if (earlyStop && result.size() >= limit) {
+                    break outer;
+                }
+            }
+        }
+        if (order != null) {
+            result.sort(order);
+        }
+        if (limit >= 0 && result.size() > limit) {
+            result = new ArrayList<>(result.subList(0, limit));
+        }
+        stats.results = result.size();
+        stats.nanos = System.nanoTime() - start;
+        lastStats = stats;
+        Consumer<Stats> listener = statsListener;
+        if (listener != null) {
+            listener.accept(stats);
+        }
+        return result;
+    }
+
+    private boolean matchesResidual(Task task) {
+        if (dueFrom != null || dueTo != null) {
+            LocalDate due = task.getDueDate();
+            if (due == null || (dueFrom != null && due.isBefore(dueFrom)) || (dueTo != null && due.isAfter(dueTo))) {
+                return false;
+            }
+        }
+        return filter == null || filter.test(task);
+    }
+
+    private static String describePlan(IndexPredicate driver, List<IndexPredicate> probes) {
+        if (driver == null) {
+            return "full scan";
+        }
+        StringBuilder plan = new StringBuilder("index ").append(driver.name)
+                .append(" (").append(driver.size).append(" ids)");
+        for (IndexPredicate probe : probes) {
+            plan.append(" & ").append(probe.name).append(" (").append(probe.size).append(" ids)");
+        }
+        return plan.toString();
+    }
+
+    // What the planner did for one execution
+    public static final class Stats {
+        private String plan;
+        private int candidates;
+        private int rowsTouched;
+        private int results;
+        private long nanos;
+
+        public String getPlan() {
+            return plan;
+        }
+
+        // Ids read from the driving posting list
+        public int getCandidates() {
+            return candidates;
+        }
+
+        // Tasks loaded after passing every index predicate
+        public int getRowsTouched() {
+            return rowsTouched;
+        }
+
+        public int getResults() {
+            return results;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        @Override
+        public String toString() {
+            return plan + " -> candidates=" + candidates + ", rows=" + rowsTouched
+                    + ", results=" + results + ", " + (nanos / 1000) + "us";
+        }
+    }
+}
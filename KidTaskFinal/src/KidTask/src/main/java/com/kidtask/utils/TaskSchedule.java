@@ -0,0 +1,127 @@
+package com.kidtask.utils;
+
+import com.kidtask.models.Task;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+// Due-date ordered view of one assignee's or one task type's tasks, backed by DueDateIndex.
+// Only the requested range is read, so a schedule screen can show one week or one page
+// at a time. Obtained from DataManager.getScheduleForAssignee / getScheduleForType.
+// The index is live and changed by saves, so every read holds the given read lock.
+public class TaskSchedule {
+    private final Supplier<NavigableSet<Long>> keys;
+    private final IntFunction<Task> lookup;
+    private final Lock lock;
+
+    TaskSchedule(Supplier<NavigableSet<Long>> keys, IntFunction<Task> lookup, Lock lock) {
+        this.keys = keys;
+        this.lookup = lookup;
+        this.lock = lock;
+    }
+
+    // Position after the last task of a page; pass it back to page() for the next one
+    public static final class Cursor {
+        private final long key;
+
+        private Cursor(long key) {
+            this.key = key;
+        }
+    }
+
+    public static final class Page {
+        private final List<Task> tasks;
+        private final Cursor next;
+
+        private Page(List<Task> tasks, Cursor next) {
+            this.tasks = tasks;
+            this.next = next;
+        }
+
+        public List<Task> getTasks() {
+            return tasks;
+        }
+
+        // null when the range has no more tasks
+        public Cursor getNext() {
+            return next;
+        }
+
+        public boolean hasMore() {
+            return next != null;
+        }
+    }
+
+    // The first n tasks due on or after the given day
+    public List<Task> next(LocalDate from, int n) {
+        return page(from, null, null, n).getTasks();
+    }
+
+    // Tasks due between the two days, both inclusive
+    public List<Task> between(LocalDate from, LocalDate to) {
+        return page(from, to, null, Integer.MAX_VALUE).getTasks();
+    }
+
+    // Up to limit tasks due in [from, to] (null = open end), continuing after the cursor if given
+    public Page page(LocalDate from, LocalDate to, Cursor after, int limit) {
+        lock.lock();
+        try {
+            return read(from, to, after, limit);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Page read(LocalDate from, LocalDate to, Cursor after, int limit) {
+        NavigableSet<Long> range = keys.get();
+        if (after != null) {
+            range = range.tailSet(after.key, false);
+        } else if (from != null) {
+            range = range.tailSet(DueDateIndex.firstKey(from), true);
+        }
+        if (to != null) {
+            range = range.headSet(DueDateIndex.firstKey(to.plusDays(1)), false);
+        }
+        List<Task> tasks = new ArrayList<>(Math.min(limit, 64));
+        Iterator<Long> it = range.iterator();
+        long last = 0;
+        while (tasks.size() < limit && it.hasNext()) {
+            last = it.next();
+            // Index'te olup henüz yayınlanmamış (ya da yeni silinmiş) görev atlanır
+            Task task = lookup.apply(DueDateIndex.idOf(last));
+            if (task != null) {
+                tasks.add(task);
+            }
+        }
+        Cursor next = !tasks.isEmpty() && it.hasNext() ? new Cursor(last) : null;
+        return new Page(tasks, next);
+    }
+
+    // Due date of the first task due on or after the day, or null
+    public LocalDate firstDueOnOrAfter(LocalDate day) {
+        Long key = withKeys(keys -> keys.ceiling(DueDateIndex.firstKey(day)));
+        return key == null ? null : DueDateIndex.dateOf(key);
+    }
+
+    // Due date of the last task due before the day, or null
+    public LocalDate lastDueBefore(LocalDate day) {
+        Long key = withKeys(keys -> keys.lower(DueDateIndex.firstKey(day)));
+        return key == null ? null : DueDateIndex.dateOf(key);
+    }
+
+    public boolean isEmpty() {
+        return withKeys(NavigableSet::isEmpty);
+    }
+
+    private <T> T withKeys(Function<NavigableSet<Long>, T> read) {
+        lock.lock();
+        try {
+            return read.apply(keys.get());
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.kidtask.utils;
+
+import com.kidtask.models.Task;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Primary storage of tasks by id. HeapTaskStore keeps Task objects; TaskTable keeps
+// columns of primitives and hands out Task views; OffHeapTaskStore does the same in
+// direct memory. Chosen with -Dkidtask.taskStore (heap by default, "columnar" for
+// TaskTable, "offheap" for OffHeapTaskStore).
+public interface TaskStore {
+    // null if there is no task with this id
+    Task get(int id);
+
+    // Inserts or replaces the task with the same id
+    void put(Task task);
+
+    void remove(int id);
+
+    int size();
+
+    // Every task; the returned objects can be kept
+    Collection<Task> values();
+
+    // Read-only list of every task as of the call, safe to use after the state lock is
+    // released. HeapTaskStore returns its persistent snapshot (no copy); the column stores
+    // have no Task objects to share, so they return detached copies of their rows.
+    List<Task> snapshot();
+
+    // Immutable version of the contents for DataVersion, or null if the store keeps only
+    // the latest state (the column stores)
+    default SnapshotMap.View<Integer, Task> view() {
+        return null;
+    }
+
+    // Fast scan over all tasks. The Task passed in may be reused for the next task,
+    // so copy what you need instead of keeping the reference.
+    void forEach(Consumer<Task> action);
+
+    static TaskStore create() {
+        String kind = System.getProperty("kidtask.taskStore", "heap");
+        switch (kind) {
+            case "columnar":
+                return new TaskTable();
+            case "offheap":
+                return new OffHeapTaskStore();
+            case "heap":
+                return new HeapTaskStore();
+            default:
+                System.err.println("Unknown kidtask.taskStore: " + kind + ", using heap");
+                return new HeapTaskStore();
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package com.kidtask.utils;
+
+import com.kidtask.models.Task;
+import com.kidtask.models.TaskTemplate;
+import java.time.LocalDate;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+// Struct-of-arrays task store: one primitive array per field, one row per task.
+// Users are SymbolTable.users() ids, enums are ordinals, due dates are epoch days.
+// get() returns a small RowView (a Task subclass reading and writing the row), so
+// views can keep changing tasks in place and calling saveTask as before.
+// Deleted rows are recycled through a free list; the id -> row map is an IntIntMap.
+// Rows given from a TaskTemplate point at it and leave title/description empty.
+public class TaskTable implements TaskStore {
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final byte FREE = -1;
+    private static final Task.TaskStatus[] STATUSES = Task.TaskStatus.values();
+    private static final Task.TaskType[] TYPES = Task.TaskType.values();
+
+    private final IntIntMap rowsById = new IntIntMap();
+    private int[] ids = new int[16];
+    private int[] points = new int[16];
+    private int[] ratings = new int[16];
+    private int[] dueDays = new int[16];
+    private int[] assignees = new int[16];
+    private int[] creators = new int[16];
+    private byte[] statuses = new byte[16];
+    private byte[] types = new byte[16];
+    private String[] titles = new String[16];
+    private String[] descriptions = new String[16];
+    private TaskTemplate[] templates = new TaskTemplate[16];
+    // Kullanılan en yüksek satır + 1; aradaki boş satırlar freeRows'ta
+    private int rowCount;
+    private int[] freeRows = new int[16];
+    private int freeCount;
+
+    @Override
+    public Task get(int id) {
+        int row = rowsById.get(id);
+        return row == IntIntMap.MISSING ? null : new RowView(this, row);
+    }
+
+    @Override
+    public void put(Task task) {
+        if (task instanceof RowView && ((RowView) task).table == this) {
+            // Görünüm satıra doğrudan yazıyor, kopyalanacak bir şey yok
+            return;
+        }
+        int row = rowsById.get(task.getId());
+        if (row == IntIntMap.MISSING) {
+            row = allocateRow();
+            rowsById.put(task.getId(), row);
+        }
+        ids[row] = task.getId();
+        TaskTemplate template = task.getTemplate();
+        templates[row] = template;
+        // Şablonlu satırda metinler şablonda; sayısal sütunlar yine doldurulur (taramalar için)
+        titles[row] = template == null ? task.getTitle() : null;
+        descriptions[row] = template == null ? task.getDescription() : null;
+        points[row] = task.getPoints();
+        statuses[row] = (byte) task.getStatus().ordinal();
+        types[row] = (byte) task.getType().ordinal();
+        assignees[row] = task.getAssigneeId();
+        creators[row] = task.getCreatorId();
+        ratings[row] = task.getRating();
+        dueDays[row] = task.getDueDate() == null ? NO_DATE : (int) task.getDueDate().toEpochDay();
+    }
+
+    @Override
+    public void remove(int id) {
+        int row = rowsById.remove(id);
+        if (row == IntIntMap.MISSING) {
+            return;
+        }
+        statuses[row] = FREE;
+        titles[row] = null;
+        descriptions[row] = null;
+        templates[row] = null;
+        if (freeCount == freeRows.length) {
+            freeRows = Arrays.copyOf(freeRows, freeCount * 2);
+        }
+        freeRows[freeCount++] = row;
+    }
+
+    @Override
+    public int size() {
+        return rowsById.size();
+    }
+
+    @Override
+    public Collection<Task> values() {
+        return new AbstractCollection<Task>() {
+            @Override
+            public Iterator<Task> iterator() {
+                return new Iterator<Task>() {
+                    private int row = nextLiveRow(0);
+
+                    @Override
+                    public boolean hasNext() {
+                        return row < rowCount;
+                    }
+
+                    @Override
+                    public Task next() {
+                        if (row >= rowCount) {
+                            throw new NoSuchElementException();
+                        }
+                        Task view = new RowView(TaskTable.this, row);
+                        row = nextLiveRow(row + 1);
+                        return view;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return TaskTable.this.size();
+            }
+        };
+    }
+
+    // Kopyalar: satır görünümleri doğrudan kolonlara yazar ve satır silinince geçersizleşir
+    @Override
+    public List<Task> snapshot() {
+        List<Task> copies = new ArrayList<>(size());
+        forEach(task -> copies.add(task.copy()));
+        return copies;
+    }
+
+    @Override
+    public void forEach(Consumer<Task> action) {
+        // Tek görünüm satırdan satıra kaydırılır: tarama boyunca nesne üretilmez
+        RowView cursor = new RowView(this, 0);
+        for (int row = 0; row < rowCount; row++) {
+            if (statuses[row] != FREE) {
+                cursor.row = row;
+                cursor.id = ids[row];
+                action.accept(cursor);
+            }
+        }
+    }
+
+    private int nextLiveRow(int row) {
+        while (row < rowCount && statuses[row] == FREE) {
+            row++;
+        }
+        return row;
+    }
+
+    private int allocateRow() {
+        if (freeCount > 0) {
+            return freeRows[--freeCount];
+        }
+        if (rowCount == ids.length) {
+            grow(rowCount * 2);
+        }
+        return rowCount++;
+    }
+
+    private void grow(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        points = Arrays.copyOf(points, capacity);
+        ratings = Arrays.copyOf(ratings, capacity);
+        dueDays = Arrays.copyOf(dueDays, capacity);
+        assignees = Arrays.copyOf(assignees, capacity);
+        creators = Arrays.copyOf(creators, capacity);
+        statuses = Arrays.copyOf(statuses, capacity);
+        types = Arrays.copyOf(types, capacity);
+        titles = Arrays.copyOf(titles, capacity);
+        descriptions = Arrays.copyOf(descriptions, capacity);
+        templates = Arrays.copyOf(templates, capacity);
+    }
+
+    // A Task backed by one row. Holds the row and the id it expects there: if the task
+    // was deleted (and the row reused), the row is looked up again by id.
+    private static final class RowView extends Task {
+        private final TaskTable table;
+        private int row;
+        private int id;
+
+        private RowView(TaskTable table, int row) {
+            this.table = table;
+            this.row = row;
+            this.id = table.ids[row];
+        }
+
+        private int row() {
+            if (table.ids[row] != id || table.statuses[row] == FREE) {
+                int moved = table.rowsById.get(id);
+                if (moved == IntIntMap.MISSING) {
+                    throw new IllegalStateException("Task " + id + " is no longer in the table");
+                }
+                row = moved;
+            }
+            return row;
+        }
+
+        @Override
+        public int getId() {
+            return id;
+        }
+
+        @Override
+        public void setId(int id) {
+            throw new UnsupportedOperationException("Task id cannot change in a TaskTable");
+        }
+
+        @Override
+        public TaskTemplate getTemplate() {
+            return table.templates[row()];
+        }
+
+        @Override
+        protected void detachTemplate() {
+            int row = row();
+            TaskTemplate template = table.templates[row];
+            if (template != null) {
+                table.titles[row] = template.getTitle();
+                table.descriptions[row] = template.getDescription();
+                table.templates[row] = null;
+            }
+        }
+
+        @Override
+        public String getTitle() {
+            int row = row();
+            TaskTemplate template = table.templates[row];
+            return template != null ? template.getTitle() : table.titles[row];
+        }
+
+        @Override
+        public void setTitle(String title) {
+            detachTemplate();
+            table.titles[row()] = title;
+        }
+
+        @Override
+        public String getDescription() {
+            int row = row();
+            TaskTemplate template = table.templates[row];
+            return template != null ? template.getDescription() : table.descriptions[row];
+        }
+
+        @Override
+        public void setDescription(String description) {
+            detachTemplate();
+            table.descriptions[row()] = description;
+        }
+
+        @Override
+        public int getPoints() {
+            return table.points[row()];
+        }
+
+        @Override
+        public void setPoints(int points) {
+            detachTemplate();
+            table.points[row()] = points;
+        }
+
+        @Override
+        public TaskStatus getStatus() {
+            return STATUSES[table.statuses[row()]];
+        }
+
+        @Override
+        public void setStatus(TaskStatus status) {
+            table.statuses[row()] = (byte) status.ordinal();
+        }
+
+        @Override
+        public TaskType getType() {
+            return TYPES[table.types[row()]];
+        }
+
+        @Override
+        public void setType(TaskType type) {
+            detachTemplate();
+            table.types[row()] = (byte) type.ordinal();
+        }
+
+        @Override
+        public int getAssigneeId() {
+            return table.assignees[row()];
+        }
+
+        @Override
+        public void setAssigneeId(int assigneeId) {
+            table.assignees[row()] = assigneeId;
+        }
+
+        @Override
+        public int getCreatorId() {
+            return table.creators[row()];
+        }
+
+        @Override
+        public void setCreatorId(int creatorId) {
+            detachTemplate();
+            table.creators[row()] = creatorId;
+        }
+
+        @Override
+        public int getRating() {
+            return table.ratings[row()];
+        }
+
+        @Override
+        public void setRating(int rating) {
+            table.ratings[row()] = rating;
+        }
+
+        @Override
+        public LocalDate getDueDate() {
+            int day = table.dueDays[row()];
+            return day == NO_DATE ? null : LocalDate.ofEpochDay(day);
+        }
+
+        @Override
+        public void setDueDate(LocalDate dueDate) {
+            detachTemplate();
+            table.dueDays[row()] = dueDate == null ? NO_DATE : (int) dueDate.toEpochDay();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.kidtask.utils;
+
+import com.kidtask.models.*;
+import java.util.*;
+
+// Reads and changes made inside DataManager.runInTransaction. Every record read or saved
+// here is a private copy, and the version it had when it was first read is remembered.
+// On commit the changes are applied together only if none of those records was changed
+// by someone else in the meantime; otherwise the work runs again on fresh copies.
+public class Transaction {
+    // Work passed to DataManager.runInTransaction; may run more than once, so it should
+    // only change data through the transaction
+    public interface Work<T> {
+        T run(Transaction tx);
+    }
+
+    private final DataManager data;
+    // Record key ("u:name", "t:id", "w:id") -> version when first read
+    private final Map<String, Long> readVersions = new LinkedHashMap<>();
+    private final Map<String, User> users = new LinkedHashMap<>();
+    private final Map<Integer, Task> tasks = new LinkedHashMap<>();
+    // Silinen dilekler null değerle tutulur
+    private final Map<Integer, Wish> wishes = new LinkedHashMap<>();
+    private final Set<String> usersSaved = new LinkedHashSet<>();
+    private final Set<Integer> tasksSaved = new LinkedHashSet<>();
+    private final Set<Integer> wishesSaved = new LinkedHashSet<>();
+
+    Transaction(DataManager data) {
+        this.data = data;
+    }
+
+    static String userKey(String username) {
+        return "u:" + username;
+    }
+
+    static String taskKey(int id) {
+        return "t:" + id;
+    }
+
+    static String wishKey(int id) {
+        return "w:" + id;
+    }
+
+    // Reading the same record again returns the same copy, with this transaction's changes
+    public User getUser(String username) {
+        if (!users.containsKey(username)) {
+            users.put(username, data.readForTransaction(userKey(username), () -> data.committedUser(username),
+                    readVersions));
+        }
+        return users.get(username);
+    }
+
+    public Task getTask(int id) {
+        if (!tasks.containsKey(id)) {
+            tasks.put(id, data.readForTransaction(taskKey(id), () -> data.committedTask(id), readVersions));
+        }
+        return tasks.get(id);
+    }
+
+    public Wish getWish(int id) {
+        if (!wishes.containsKey(id)) {
+            wishes.put(id, data.readForTransaction(wishKey(id), () -> data.committedWish(id), readVersions));
+        }
+        return wishes.get(id);
+    }
+
+    public void saveUser(User user) {
+        getUser(user.getUsername());
+        users.put(user.getUsername(), user);
+        usersSaved.add(user.getUsername());
+    }
+
+    public void saveTask(Task task) {
+        getTask(task.getId());
+        tasks.put(task.getId(), task);
+        tasksSaved.add(task.getId());
+    }
+
+    public void saveWish(Wish wish) {
+        getWish(wish.getId());
+        wishes.put(wish.getId(), wish);
+        wishesSaved.add(wish.getId());
+    }
+
+    public void deleteWish(int wishId) {
+        getWish(wishId);
+        wishes.put(wishId, null);
+        wishesSaved.add(wishId);
+    }
+
+    boolean hasChanges() {
+        return !usersSaved.isEmpty() || !tasksSaved.isEmpty() || !wishesSaved.isEmpty();
+    }
+
+    Map<String, Long> getReadVersions() {
+        return readVersions;
+    }
+
+    // Kids whose stripes the commit must hold: every user read or saved, the assignee of
+    // every task and the owner of every wish (as read and as saved)
+    Set<String> getOwners() {
+        Set<String> owners = new HashSet<>(users.keySet());
+        for (Map.Entry<Integer, Task> entry : tasks.entrySet()) {
+            owners.add(data.committedAssignee(entry.getKey()));
+            if (entry.getValue() != null) {
+                owners.add(entry.getValue().getAssignee());
+            }
+        }
+        for (Map.Entry<Integer, Wish> entry : wishes.entrySet()) {
+            owners.add(data.committedWishOwner(entry.getKey()));
+            if (entry.getValue() != null) {
+                owners.add(entry.getValue().getOwner());
+            }
+        }
+        owners.remove(null);
+        return owners;
+    }
+
+    List<User> getSavedUsers() {
+        List<User> saved = new ArrayList<>();
+        for (String username : usersSaved) {
+            saved.add(users.get(username));
+        }
+        return saved;
+    }
+
+    List<Task> getSavedTasks() {
+        List<Task> saved = new ArrayList<>();
+        for (Integer id : tasksSaved) {
+            saved.add(tasks.get(id));
+        }
+        return saved;
+    }
+
+    // Saved wishes by id; a null value is a delete
+    Map<Integer, Wish> getSavedWishes() {
+        Map<Integer, Wish> saved = new LinkedHashMap<>();
+        for (Integer id : wishesSaved) {
+            saved.put(id, wishes.get(id));
+        }
+        return saved;
+    }
+}
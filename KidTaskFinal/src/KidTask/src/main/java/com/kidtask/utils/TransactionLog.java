@@ -0,0 +1,173 @@
+package com.kidtask.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// Intent log of DataManager transactions (data/Transactions.log). A transaction's whole
+// batch is appended and forced to disk in one write before any of its records reaches
+// the entity journals; after that the batch is marked applied:
+//   B;<id>;<count>
+//   <entity>;U;<record>   or   <entity>;D;<key>
+//   C;<id>                (batch complete, forced to disk)
+//   E;<id>                (batch is in the journals)
+// A crash after C but before E leaves a batch that recover() hands back to be applied
+// again (every entry is an upsert or delete, so applying twice is harmless); a batch
+// cut before its C line was never committed and is ignored. The write-behind thread
+// logs all transactions of one write with a single force (group commit).
+// Processes sharing the data directory share the log: a batch's id is the file offset of
+// its B line, so ids never repeat while the lines are in the file, and the file is only
+// opened (in append mode) while the writer holds the data directory lock.
+public class TransactionLog {
+    // Kuyrukta bekleyen toplu iş yokken bu boyutu geçen log baştan başlar
+    private static final long RESET_BYTES = 256 * 1024;
+
+    private final Path path;
+    private FileChannel channel;
+    private int inFlight;
+    // A batch could not be applied: keep it in the log for the next recover()
+    private boolean keep;
+
+    public TransactionLog(Path path) {
+        this.path = path;
+    }
+
+    // One logged change: entity is "users", "tasks" or "wishes", line is a journal line
+    public static final class Entry {
+        private final String entity;
+        private final String line;
+
+        private Entry(String entity, String line) {
+            this.entity = entity;
+            this.line = line;
+        }
+
+        public static Entry upsert(String entity, String record) {
+            return new Entry(entity, ParallelRecordLoader.UPSERT_PREFIX + record);
+        }
+
+        public static Entry delete(String entity, String key) {
+            return new Entry(entity, ParallelRecordLoader.DELETE_PREFIX + key);
+        }
+
+        public String getEntity() {
+            return entity;
+        }
+
+        public boolean isDelete() {
+            return line.startsWith(ParallelRecordLoader.DELETE_PREFIX);
+        }
+
+        // The record (upsert) or the key (delete)
+        public String getRecord() {
+            return line.substring(2);
+        }
+    }
+
+    // Batches that were committed but not marked applied, oldest first. Call before any
+    // commit; apply them, then call reset().
+    public synchronized List<List<Entry>> recover() throws IOException {
+        close();
+        List<List<Entry>> pending = new ArrayList<>();
+        if (!Files.exists(path)) {
+            return pending;
+        }
+        Map<Long, List<Entry>> committed = new LinkedHashMap<>();
+        List<Entry> batch = null;
+        long batchId = 0;
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            if (line.startsWith("B;")) {
+                RecordReader in = new RecordReader(line).skip(2);
+                batchId = Long.parseLong(in.nextString());
+                batch = new ArrayList<>(in.nextInt());
+            } else if (line.startsWith("C;") && batch != null && Long.parseLong(line.substring(2)) == batchId) {
+                committed.put(batchId, batch);
+                batch = null;
+            } else if (line.startsWith("E;")) {
+                committed.remove(Long.parseLong(line.substring(2)));
+            } else if (batch != null) {
+                int separator = line.indexOf(';');
+                if (separator > 0) {
+                    batch.add(new Entry(line.substring(0, separator), line.substring(separator + 1)));
+                }
+            }
+        }
+        pending.addAll(committed.values());
+        return pending;
+    }
+
+    // Empties the log; the batches recover() returned must already be in the journals
+    public synchronized void reset() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+        keep = false;
+    }
+
+    // Appends the batches and returns once they are on disk (one force for all); pass
+    // each returned id to finish(). Call with the data directory lock held.
+    public synchronized List<Long> commit(List<List<Entry>> batches) throws IOException {
+        open();
+        List<Long> ids = new ArrayList<>(batches.size());
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        long offset = channel.size();
+        for (List<Entry> entries : batches) {
+            long id = offset + text.size();
+            StringBuilder batch = new StringBuilder();
+            batch.append("B;").append(id).append(';').append(entries.size()).append('\n');
+            for (Entry entry : entries) {
+                batch.append(entry.entity).append(';').append(entry.line).append('\n');
+            }
+            batch.append("C;").append(id).append('\n');
+            text.writeBytes(batch.toString().getBytes(StandardCharsets.UTF_8));
+            ids.add(id);
+        }
+        write(ByteBuffer.wrap(text.toByteArray()));
+        channel.force(false);
+        inFlight += ids.size();
+        return ids;
+    }
+
+    // applied = false if the journals could not be written: the batch then stays in the
+    // log and is applied again on the next load
+    public synchronized void finish(long id, boolean applied) throws IOException {
+        inFlight--;
+        if (!applied) {
+            keep = true;
+            return;
+        }
+        write(ByteBuffer.wrap(("E;" + id + "\n").getBytes(StandardCharsets.UTF_8)));
+        if (inFlight > 0) {
+            return;
+        }
+        // Başka bir sürecin yarıda kalmış batch'i varsa log kısaltılmaz; onu recover() uygular
+        if (!keep && channel.size() >= RESET_BYTES && recover().isEmpty()) {
+            Files.write(path, new byte[0]);
+        }
+        close();
+    }
+
+    // Opened for each write and closed after it: another process may have emptied or
+    // deleted the file in between
+    private void open() throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+}
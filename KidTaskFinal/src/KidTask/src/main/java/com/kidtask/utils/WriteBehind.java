@@ -0,0 +1,264 @@
+package com.kidtask.utils;
+
+import com.kidtask.models.Task;
+import java.io.IOException;
+import java.util.*;
+
+// Write-behind queue for DataManager. Saves change memory right away and leave their
+// file writes here; one background thread ("kidtask-writer") writes them in batches, so
+// the JavaFX thread never waits for the disk. Changes to the same record within a batch
+// are merged and only the latest one is written: a teacher rating 30 tasks in a row
+// costs one journal write and one flush per file. When a batch is written depends on
+// the durability policy (-Dkidtask.durability):
+//   every-commit: right away; the save returns once its batch is written
+//   batched:      every -Dkidtask.flushIntervalMs (default 200) ms; saves do not wait
+//   on-shutdown:  only on flush() (logout, load, full rewrites) and shutdown
+// flush() is a barrier: it returns when everything queued before it is written.
+// Each batch is written under the data directory lock, so batches of several processes
+// sharing the directory reach the files one after the other, never interleaved.
+public class WriteBehind {
+    public enum Durability {
+        EVERY_COMMIT, BATCHED, ON_SHUTDOWN;
+
+        static Durability fromProperty() {
+            String value = System.getProperty("kidtask.durability", "batched");
+            switch (value) {
+                case "every-commit":
+                    return EVERY_COMMIT;
+                case "on-shutdown":
+                    return ON_SHUTDOWN;
+                case "batched":
+                    return BATCHED;
+                default:
+                    System.err.println("Unknown kidtask.durability: " + value + ", using batched");
+                    return BATCHED;
+            }
+        }
+    }
+
+    private final Durability durability;
+    private final long intervalMillis;
+    private final TransactionLog transactionLog;
+    private final MappedTaskFile mappedTasks;
+    private final DataDirectoryLock directoryLock;
+    // Journals other records point at (templates): written before the rest of each batch
+    private final Set<JournalFile> writtenFirst = new HashSet<>();
+
+    // Bekleyen değişiklikler: dosya -> kayıt anahtarı -> son kayıt (null = sil)
+    private Map<JournalFile, Map<String, String>> journals = new LinkedHashMap<>();
+    private Map<Integer, Task> mapped = new LinkedHashMap<>();
+    private List<List<TransactionLog.Entry>> transactions = new ArrayList<>();
+    private long firstPendingAt;
+    // Sequence numbers: last change queued, last change written, highest one flush() waits for
+    private long queued;
+    private long written;
+    private long flushTarget;
+
+    public WriteBehind(Durability durability, long intervalMillis, TransactionLog transactionLog,
+                       MappedTaskFile mappedTasks, DataDirectoryLock directoryLock) {
+        this.durability = durability;
+        this.intervalMillis = intervalMillis;
+        this.transactionLog = transactionLog;
+        this.mappedTasks = mappedTasks;
+        this.directoryLock = directoryLock;
+        Thread thread = new Thread(this::run, "kidtask-writer");
+        thread.setDaemon(true);
+        thread.start();
+        // Kapanış stop() üzerinden gelmese de (System.exit) kuyruk boşaltılır
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "kidtask-writer-exit"));
+    }
+
+    public static WriteBehind fromProperties(TransactionLog transactionLog, MappedTaskFile mappedTasks,
+                                             DataDirectoryLock directoryLock) {
+        return new WriteBehind(Durability.fromProperty(), Long.getLong("kidtask.flushIntervalMs", 200),
+                transactionLog, mappedTasks, directoryLock);
+    }
+
+    // The journal's pending changes go to disk before any other journal's in the same
+    // batch, so a crash in between never leaves records pointing at a missing one
+    public synchronized void writeFirst(JournalFile journal) {
+        writtenFirst.add(journal);
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    public synchronized void upsert(JournalFile journal, String record) {
+        queue(journal).put(JournalFile.keyOf(record), record);
+    }
+
+    public synchronized void delete(JournalFile journal, String key) {
+        queue(journal).put(key, null);
+    }
+
+    // Tasks.dat record; pass a task nobody changes any more (a copy)
+    public synchronized void writeMapped(Task task) {
+        mapped.put(task.getId(), task);
+        queued();
+    }
+
+    // The transaction's batch goes to Transactions.log (forced) before the changes queued
+    // by enqueueChanges reach any journal; both always land in the same write
+    public synchronized void transaction(List<TransactionLog.Entry> entries, Runnable enqueueChanges) {
+        transactions.add(entries);
+        enqueueChanges.run();
+        queued();
+    }
+
+    // Call after queueing one save's changes. With every-commit it returns once they are
+    // written; otherwise it only wakes the writer.
+    public void committed() {
+        if (durability == Durability.EVERY_COMMIT) {
+            flush();
+        }
+    }
+
+    // Returns when everything queued so far is written. A thread holding the directory
+    // lock writes the queue itself: the writer thread would wait for that lock.
+    public void flush() {
+        if (directoryLock.isHeldByCurrentThread()) {
+            writeQueued();
+            return;
+        }
+        awaitWritten();
+    }
+
+    private synchronized void awaitWritten() {
+        long target = queued;
+        flushTarget = Math.max(flushTarget, target);
+        notifyAll();
+        boolean interrupted = false;
+        while (written < target) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Map<String, String> queue(JournalFile journal) {
+        queued();
+        return journals.computeIfAbsent(journal, k -> new LinkedHashMap<>());
+    }
+
+    private void queued() {
+        if (written == queued) {
+            firstPendingAt = System.currentTimeMillis();
+        }
+        queued++;
+    }
+
+    private void run() {
+        while (true) {
+            synchronized (this) {
+                try {
+                    long delay;
+                    while ((delay = delayUntilDue()) != 0) {
+                        wait(Math.max(0, delay));
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            directoryLock.lock();
+            try {
+                writeQueued();
+            } finally {
+                directoryLock.unlock();
+            }
+        }
+    }
+
+    // Takes and writes the whole queue; the caller holds the directory lock, so batches
+    // are written in the order they were taken
+    private void writeQueued() {
+        Map<JournalFile, Map<String, String>> journalBatch;
+        Map<Integer, Task> mappedBatch;
+        List<List<TransactionLog.Entry>> transactionBatch;
+        long target;
+        synchronized (this) {
+            if (written == queued) {
+                return;
+            }
+            journalBatch = journals;
+            mappedBatch = mapped;
+            transactionBatch = transactions;
+            journals = new LinkedHashMap<>();
+            mapped = new LinkedHashMap<>();
+            transactions = new ArrayList<>();
+            target = queued;
+        }
+        try {
+            write(journalBatch, mappedBatch, transactionBatch);
+        } catch (RuntimeException e) {
+            System.err.println("Error in background writer: " + e);
+        }
+        synchronized (this) {
+            written = target;
+            notifyAll();
+        }
+    }
+
+    // 0 = write now, -1 = wait until woken, otherwise milliseconds to wait
+    private long delayUntilDue() {
+        if (written == queued) {
+            return -1;
+        }
+        if (flushTarget > written || durability == Durability.EVERY_COMMIT) {
+            return 0;
+        }
+        if (durability == Durability.ON_SHUTDOWN) {
+            return -1;
+        }
+        long left = firstPendingAt + intervalMillis - System.currentTimeMillis();
+        return left <= 0 ? 0 : left;
+    }
+
+    private void write(Map<JournalFile, Map<String, String>> journalBatch, Map<Integer, Task> mappedBatch,
+                       List<List<TransactionLog.Entry>> transactionBatch) {
+        List<Long> logIds = Collections.emptyList();
+        if (!transactionBatch.isEmpty()) {
+            try {
+                logIds = transactionLog.commit(transactionBatch);
+            } catch (IOException e) {
+                System.err.println("Error logging transactions: " + e.getMessage());
+            }
+        }
+        boolean applied = true;
+        List<Map.Entry<JournalFile, Map<String, String>>> ordered = new ArrayList<>(journalBatch.entrySet());
+        synchronized (this) {
+            // Kararlı sıralama: öncelikli journal'lar başa, diğerleri kuyruğa girdikleri sırada
+            ordered.sort(Comparator.comparing(journal -> !writtenFirst.contains(journal.getKey())));
+        }
+        for (Map.Entry<JournalFile, Map<String, String>> journal : ordered) {
+            try {
+                journal.getKey().appendAll(journal.getValue());
+            } catch (IOException e) {
+                applied = false;
+                System.err.println("Error saving " + journal.getKey().getSnapshotPath().getFileName() + ": "
+                        + e.getMessage());
+            }
+        }
+        for (Task task : mappedBatch.values()) {
+            try {
+                // Sadece kaydın değişen alanları map'li sayfaya yazılır
+                mappedTasks.write(task);
+            } catch (IOException e) {
+                applied = false;
+                System.err.println("Error saving task: " + e.getMessage());
+            }
+        }
+        for (long id : logIds) {
+            try {
+                transactionLog.finish(id, applied);
+            } catch (IOException e) {
+                System.err.println("Error logging transactions: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package com.kidtask.views;
 
 import com.kidtask.models.*;
+import com.kidtask.utils.AsyncDataManager;
 import com.kidtask.utils.DataManager;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
@@ -13,9 +15,11 @@ import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class KidDashboardView extends BorderPane {
     private DataManager dataManager;
+    private AsyncDataManager asyncData;
     private User currentUser;
     private VBox sidebar;
     private VBox contentArea;
@@ -30,9 +34,8 @@ public class KidDashboardView extends BorderPane {
     public KidDashboardView(User user) {
         this.currentUser = user;
         this.dataManager = DataManager.getInstance();
-        // Verileri yeniden yükle
-        dataManager.loadAllData();
-        // Kullanıcı bilgilerini güncelle
+        this.asyncData = AsyncDataManager.getInstance();
+        // Veriler showMyTasks'ta arka planda yenilenir
         this.currentUser = dataManager.getUserByUsername(user.getUsername());
         setupView();
         loadData();
@@ -222,30 +225,57 @@ public class KidDashboardView extends BorderPane {
         VBox tasksContainer = new VBox(16);
         tasksContainer.setAlignment(Pos.TOP_CENTER);
         tasksContainer.setPrefWidth(800);
+        tasksContainer.getChildren().add(createLoadingLabel());
+        contentArea.getChildren().addAll(title, tasksContainer);
 
-        // Verileri yeniden yükle
-        dataManager.loadAllData();
-        // Kullanıcı bilgilerini güncelle
-        currentUser = dataManager.getUserByUsername(currentUser.getUsername());
-        List<Task> myTasks = dataManager.getTasksByAssignee(currentUser.getUsername());
-        for (Task task : myTasks) {
-            // Sadece ASSIGNED, PENDING_APPROVAL ve REJECTED task'ları göster
-            // COMPLETED ve FINALIZED task'ları gösterme
-            if (task.getStatus() == Task.TaskStatus.ASSIGNED || 
-                task.getStatus() == Task.TaskStatus.PENDING_APPROVAL || 
-                task.getStatus() == Task.TaskStatus.REJECTED) {
+        // Değişen veri dosyalarını arka planda oku, ekran bu sırada açık kalır
+        // Sadece ASSIGNED, PENDING_APPROVAL ve REJECTED task'ları göster
+        // COMPLETED ve FINALIZED task'ları gösterme
+        String username = currentUser.getUsername();
+        AsyncDataManager.onFxThread(asyncData.refreshAsync()
+                .thenCompose(loaded -> asyncData.loadTasksForAssigneeAsync(username, Task.TaskStatus.ASSIGNED,
+                        Task.TaskStatus.PENDING_APPROVAL, Task.TaskStatus.REJECTED)), myTasks -> {
+            // Bu sırada başka bir sekmeye geçildiyse eski listeyi gösterme
+            if (!contentArea.getChildren().contains(tasksContainer)) {
+                return;
+            }
+            // Kullanıcı bilgilerini güncelle
+            currentUser = dataManager.getUserByUsername(username);
+            loadData();
+            tasksContainer.getChildren().clear();
+            for (Task task : myTasks) {
                 tasksContainer.getChildren().add(createTaskCard(task));
             }
-        }
 
-        if (tasksContainer.getChildren().isEmpty()) {
-            Label noTasks = new Label("No tasks assigned yet!");
-            noTasks.setFont(Font.font("Segoe UI", 16));
-            noTasks.setTextFill(Color.web("#666666"));
-            tasksContainer.getChildren().add(noTasks);
-        }
+            if (tasksContainer.getChildren().isEmpty()) {
+                Label noTasks = new Label("No tasks assigned yet!");
+                noTasks.setFont(Font.font("Segoe UI", 16));
+                noTasks.setTextFill(Color.web("#666666"));
+                tasksContainer.getChildren().add(noTasks);
+            }
+        });
+    }
 
-        contentArea.getChildren().addAll(title, tasksContainer);
+    private Label createLoadingLabel() {
+        Label loading = new Label("Loading tasks...");
+        loading.setFont(Font.font("Segoe UI", 16));
+        loading.setTextFill(Color.web("#999999"));
+        return loading;
+    }
+
+    // Kayıt başarısız olursa kontrolü tekrar aç ve kartın altında kırmızı hata yazısı göster
+    private void showSaveError(Node control, Pane card, Throwable error) {
+        control.setDisable(false);
+        clearSaveError(card);
+        Label errorLabel = new Label("Could not save, please try again: " + error.getMessage());
+        errorLabel.setId("save-error");
+        errorLabel.setFont(Font.font("Segoe UI", 12));
+        errorLabel.setTextFill(Color.RED);
+        card.getChildren().add(errorLabel);
+    }
+
+    private void clearSaveError(Pane card) {
+        card.getChildren().removeIf(node -> "save-error".equals(node.getId()));
     }
 
     private VBox createTaskCard(Task task) {
@@ -306,15 +336,19 @@ public class KidDashboardView extends BorderPane {
             Button completeBtn = new Button("Complete");
             completeBtn.getStyleClass().add("kid-button");
             completeBtn.setOnAction(e -> {
+                completeBtn.setDisable(true);
                 task.setStatus(Task.TaskStatus.PENDING_APPROVAL);
-                dataManager.saveTask(task);
-                
-                // Butonu kaldır, Waiting yazısı ekle
-                header.getChildren().clear();
-                Label waitingLabel = new Label("Waiting");
-                waitingLabel.setFont(Font.font("Segoe UI", FontWeight.BOLD, 14));
-                waitingLabel.setTextFill(Color.web("#FFA500"));
-                header.getChildren().addAll(taskInfo, waitingLabel);
+                AsyncDataManager.onFxThread(asyncData.saveTaskAsync(task), saved -> {
+                    // Butonu kaldır, Waiting yazısı ekle
+                    header.getChildren().clear();
+                    Label waitingLabel = new Label("Waiting");
+                    waitingLabel.setFont(Font.font("Segoe UI", FontWeight.BOLD, 14));
+                    waitingLabel.setTextFill(Color.web("#FFA500"));
+                    header.getChildren().addAll(taskInfo, waitingLabel);
+                }, error -> {
+                    task.setStatus(Task.TaskStatus.ASSIGNED);
+                    showSaveError(completeBtn, card, error);
+                });
             });
             header.getChildren().addAll(taskInfo, completeBtn);
         }
@@ -363,27 +397,39 @@ public class KidDashboardView extends BorderPane {
             if (!wishTitle.isEmpty() && !costStr.isEmpty()) {
                 try {
                     int cost = Integer.parseInt(costStr);
-                    // Puan kontrolü
-                    if (cost > currentUser.getCurrentPoints()) {
-                        // Hata göster - yeterli puan yok
-                        return;
-                    }
-                    // Puanlardan düş
-                    currentUser.setCurrentPoints(currentUser.getCurrentPoints() - cost);
-                    dataManager.saveUser(currentUser);
-                    
-                    Wish wish = new Wish(
-                        dataManager.getNextWishId(),
-                        wishTitle,
-                        cost,
-                        Wish.WishStatus.PENDING,
-                        currentUser.getUsername()
-                    );
-                    dataManager.saveWish(wish);
-                    wishTitleField.clear();
-                    costField.clear();
-                    loadData(); // Puanları güncelle
-                    showWishes();
+                    addBtn.setDisable(true);
+                    // Puan düşümü ve dilek birlikte kaydedilir
+                    CompletableFuture<Boolean> added = asyncData.supplyAsync(dataManager::getNextWishId)
+                            .thenCompose(wishId -> asyncData.runInTransactionAsync(tx -> {
+                                User kid = tx.getUser(currentUser.getUsername());
+                                // Puan kontrolü
+                                if (kid == null || cost > kid.getCurrentPoints()) {
+                                    return false;
+                                }
+                                // Puanlardan düş
+                                kid.setCurrentPoints(kid.getCurrentPoints() - cost);
+                                tx.saveUser(kid);
+                                tx.saveWish(new Wish(
+                                    wishId,
+                                    wishTitle,
+                                    cost,
+                                    Wish.WishStatus.PENDING,
+                                    kid.getUsername()
+                                ));
+                                return true;
+                            }));
+                    AsyncDataManager.onFxThread(added, done -> {
+                        addBtn.setDisable(false);
+                        clearSaveError(formCard);
+                        if (!done) {
+                            // Hata göster - yeterli puan yok
+                            return;
+                        }
+                        wishTitleField.clear();
+                        costField.clear();
+                        loadData(); // Puanları güncelle
+                        showWishes();
+                    }, error -> showSaveError(addBtn, formCard, error));
                 } catch (NumberFormatException ex) {
                     // Show error
                 }
@@ -488,23 +534,9 @@ public class KidDashboardView extends BorderPane {
         title.getStyleClass().add("title-text");
         title.setFont(Font.font("Segoe UI", FontWeight.BOLD, 28));
 
-        VBox scheduleContainer = new VBox(16);
-        scheduleContainer.setAlignment(Pos.TOP_CENTER);
-        scheduleContainer.setPrefWidth(800);
-
-        List<Task> myTasks = dataManager.getTasksByAssignee(currentUser.getUsername());
-        for (Task task : myTasks) {
-            if (task.getDueDate() != null) {
-                scheduleContainer.getChildren().add(createScheduleCard(task));
-            }
-        }
-
-        if (scheduleContainer.getChildren().isEmpty()) {
-            Label noSchedule = new Label("No scheduled tasks!");
-            noSchedule.setFont(Font.font("Segoe UI", 16));
-            noSchedule.setTextFill(Color.web("#666666"));
-            scheduleContainer.getChildren().add(noSchedule);
-        }
+        // Haftalık, tarihe göre sıralı; sadece gösterilen hafta okunur
+        SchedulePane scheduleContainer = new SchedulePane(dataManager.getScheduleForAssignee(currentUser.getUsername()),
+                "kid-button", this::createScheduleCard);
 
         contentArea.getChildren().addAll(title, scheduleContainer);
     }
@@ -537,7 +569,7 @@ public class KidDashboardView extends BorderPane {
         if (calculatedLevel < 1) calculatedLevel = 1;
         if (calculatedLevel > currentUser.getLevel()) {
             currentUser.setLevel(calculatedLevel);
-            dataManager.saveUser(currentUser);
+            asyncData.saveUserAsync(currentUser);
         }
         
         // Update level label
@@ -572,10 +604,7 @@ public class KidDashboardView extends BorderPane {
     }
 
     public void refresh() {
-        // Verileri yeniden yükle
-        dataManager.loadAllData();
-        currentUser = dataManager.getUserByUsername(currentUser.getUsername());
-        loadData();
+        // Veriler ve kullanıcı bilgileri showMyTasks'ta arka planda yenilenir
         showMyTasks();
     }
 }
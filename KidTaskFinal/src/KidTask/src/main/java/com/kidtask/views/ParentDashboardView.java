@@ -1,9 +1,13 @@
 package com.kidtask.views;
 
 import com.kidtask.models.*;
+import com.kidtask.utils.AsyncDataManager;
 import com.kidtask.utils.DataManager;
+import com.kidtask.utils.TaskAggregates;
+import com.kidtask.utils.TaskQuery;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
@@ -13,9 +17,12 @@ import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 public class ParentDashboardView extends BorderPane {
     private DataManager dataManager;
+    private AsyncDataManager asyncData;
     private User currentUser;
     private VBox sidebar;
     private VBox contentArea;
@@ -28,8 +35,8 @@ public class ParentDashboardView extends BorderPane {
     public ParentDashboardView(User user) {
         this.currentUser = user;
         this.dataManager = DataManager.getInstance();
-        // Verileri yeniden yükle
-        dataManager.loadAllData();
+        this.asyncData = AsyncDataManager.getInstance();
+        // Veriler showApprovalCenter'ta arka planda yenilenir
         this.currentUser = dataManager.getUserByUsername(user.getUsername());
         setupView();
         loadData();
@@ -119,7 +126,10 @@ public class ParentDashboardView extends BorderPane {
         Button scheduleBtn = createNavButton("Schedule", false);
         scheduleBtn.setOnAction(e -> showSchedule());
 
-        sidebar.getChildren().addAll(logoBox, showTasksBtn, approvalBtn, assignTaskBtn, wishesBtn, achievementsBtn, scheduleBtn);
+        Button historyBtn = createNavButton("Task History", false);
+        historyBtn.setOnAction(e -> showTaskHistory());
+
+        sidebar.getChildren().addAll(logoBox, showTasksBtn, approvalBtn, assignTaskBtn, wishesBtn, achievementsBtn, scheduleBtn, historyBtn);
         return sidebar;
     }
 
@@ -242,27 +252,56 @@ public class ParentDashboardView extends BorderPane {
         VBox approvalsContainer = new VBox(16);
         approvalsContainer.setAlignment(Pos.TOP_CENTER);
         approvalsContainer.setPrefWidth(800);
+        approvalsContainer.getChildren().add(createLoadingLabel());
+        contentArea.getChildren().addAll(title, approvalsContainer);
 
         // Sadece Parent'ın verdiği HOME task'ları göster
-        // Verileri yeniden yükle
-        dataManager.loadAllData();
-        List<Task> pendingTasks = dataManager.getTasksByStatus(Task.TaskStatus.PENDING_APPROVAL);
-        List<Task> myPendingTasks = pendingTasks.stream()
-                .filter(t -> t.getType() == Task.TaskType.HOME)
-                .filter(t -> t.getCreator() != null && t.getCreator().equals(currentUser.getUsername()))
-                .collect(java.util.stream.Collectors.toList());
-        for (Task task : myPendingTasks) {
-            approvalsContainer.getChildren().add(createApprovalCard(task));
-        }
+        // Değişen veri dosyalarını arka planda oku, ekran bu sırada açık kalır
+        TaskQuery pendingQuery = TaskQuery.tasks()
+                .creator(currentUser.getUsername())
+                .status(Task.TaskStatus.PENDING_APPROVAL)
+                .type(Task.TaskType.HOME);
+        AsyncDataManager.onFxThread(asyncData.refreshAsync()
+                .thenCompose(loaded -> asyncData.queryAsync(pendingQuery)), myPendingTasks -> {
+            // Bu sırada başka bir sekmeye geçildiyse eski listeyi gösterme
+            if (!contentArea.getChildren().contains(approvalsContainer)) {
+                return;
+            }
+            loadData();
+            approvalsContainer.getChildren().clear();
+            for (Task task : myPendingTasks) {
+                approvalsContainer.getChildren().add(createApprovalCard(task));
+            }
 
-        if (approvalsContainer.getChildren().isEmpty()) {
-            Label noPending = new Label("All caught up! No pending submissions.");
-            noPending.setFont(Font.font("Segoe UI", 16));
-            noPending.setTextFill(Color.web("#666666"));
-            approvalsContainer.getChildren().add(noPending);
-        }
+            if (approvalsContainer.getChildren().isEmpty()) {
+                Label noPending = new Label("All caught up! No pending submissions.");
+                noPending.setFont(Font.font("Segoe UI", 16));
+                noPending.setTextFill(Color.web("#666666"));
+                approvalsContainer.getChildren().add(noPending);
+            }
+        });
+    }
 
-        contentArea.getChildren().addAll(title, approvalsContainer);
+    private Label createLoadingLabel() {
+        Label loading = new Label("Loading submissions...");
+        loading.setFont(Font.font("Segoe UI", 16));
+        loading.setTextFill(Color.web("#999999"));
+        return loading;
+    }
+
+    // Kayıt başarısız olursa kontrolü tekrar aç ve kartın altında kırmızı hata yazısı göster
+    private void showSaveError(Node control, Pane card, Throwable error) {
+        control.setDisable(false);
+        clearSaveError(card);
+        Label errorLabel = new Label("Could not save, please try again: " + error.getMessage());
+        errorLabel.setId("save-error");
+        errorLabel.setFont(Font.font("Segoe UI", 12));
+        errorLabel.setTextFill(Color.RED);
+        card.getChildren().add(errorLabel);
+    }
+
+    private void clearSaveError(Pane card) {
+        card.getChildren().removeIf(node -> "save-error".equals(node.getId()));
     }
 
     private VBox createApprovalCard(Task task) {
@@ -289,11 +328,18 @@ public class ParentDashboardView extends BorderPane {
         HBox buttons = new HBox(12);
         Button approveBtn = new Button("Approve");
         approveBtn.getStyleClass().add("parent-button");
-        approveBtn.setOnAction(e -> approveTask(task));
+        approveBtn.setOnAction(e -> {
+            // Kayıt bitene kadar ikinci tıklamayı engelle
+            buttons.setDisable(true);
+            approveTask(task, buttons, card);
+        });
 
         Button rejectBtn = new Button("Reject");
         rejectBtn.getStyleClass().add("parent-reject-button");
-        rejectBtn.setOnAction(e -> rejectTask(task));
+        rejectBtn.setOnAction(e -> {
+            buttons.setDisable(true);
+            rejectTask(task, buttons, card);
+        });
 
         buttons.getChildren().addAll(approveBtn, rejectBtn);
         header.getChildren().addAll(taskInfo, buttons);
@@ -302,37 +348,55 @@ public class ParentDashboardView extends BorderPane {
         return card;
     }
 
-    private void approveTask(Task task) {
-        task.setStatus(Task.TaskStatus.COMPLETED);
-        dataManager.saveTask(task);
-
-        // Add points to user and update level (50 points = 1 level)
-        User user = dataManager.getUserByUsername(task.getAssignee());
-        if (user != null) {
-            // Puanları integer olarak direkt topla
-            int pointsToAdd = task.getPoints();
-            user.setCurrentPoints(user.getCurrentPoints() + pointsToAdd);
-            user.setTotalExperience(user.getTotalExperience() + pointsToAdd);
-            
-            // Level hesaplama: 50 puan = 1 level (minimum level 1)
-            int newTotalExp = user.getTotalExperience();
-            int newLevel = (newTotalExp / 50) + 1;
-            if (newLevel < 1) newLevel = 1;
-            if (newLevel > user.getLevel()) {
-                user.setLevel(newLevel);
+    private void approveTask(Task task, Node buttons, VBox card) {
+        // Görev ve puanlar birlikte kaydedilir; başka bir oturum onayladıysa tekrar puan verilmez
+        CompletableFuture<Boolean> approved = asyncData.runInTransactionAsync(tx -> {
+            Task current = tx.getTask(task.getId());
+            if (current == null || current.getStatus() != Task.TaskStatus.PENDING_APPROVAL) {
+                return false;
             }
-            
-            dataManager.saveUser(user);
-        }
+            current.setStatus(Task.TaskStatus.COMPLETED);
+            tx.saveTask(current);
+
+            // Add points to user and update level (50 points = 1 level)
+            User user = tx.getUser(current.getAssignee());
+            if (user != null) {
+                // Puanları integer olarak direkt topla
+                int pointsToAdd = current.getPoints();
+                user.setCurrentPoints(user.getCurrentPoints() + pointsToAdd);
+                user.setTotalExperience(user.getTotalExperience() + pointsToAdd);
+
+                // Level hesaplama: 50 puan = 1 level (minimum level 1)
+                int newTotalExp = user.getTotalExperience();
+                int newLevel = (newTotalExp / 50) + 1;
+                if (newLevel < 1) newLevel = 1;
+                if (newLevel > user.getLevel()) {
+                    user.setLevel(newLevel);
+                }
 
-        showApprovalCenter();
-        loadData();
+                tx.saveUser(user);
+            }
+            return true;
+        });
+
+        // showApprovalCenter ilerleme çubuğunu da günceller
+        AsyncDataManager.onFxThread(approved, done -> showApprovalCenter(),
+                error -> showSaveError(buttons, card, error));
     }
 
-    private void rejectTask(Task task) {
-        task.setStatus(Task.TaskStatus.REJECTED);
-        dataManager.saveTask(task);
-        showApprovalCenter();
+    private void rejectTask(Task task, Node buttons, VBox card) {
+        // Sadece hâlâ onay bekliyorsa reddedilir; başka bir oturum onayladıysa (puan verildiyse) dokunulmaz
+        CompletableFuture<Boolean> rejected = asyncData.runInTransactionAsync(tx -> {
+            Task current = tx.getTask(task.getId());
+            if (current == null || current.getStatus() != Task.TaskStatus.PENDING_APPROVAL) {
+                return false;
+            }
+            current.setStatus(Task.TaskStatus.REJECTED);
+            tx.saveTask(current);
+            return true;
+        });
+        AsyncDataManager.onFxThread(rejected, done -> showApprovalCenter(),
+                error -> showSaveError(buttons, card, error));
     }
 
     private void showAssignTask() {
@@ -396,24 +460,30 @@ public class ParentDashboardView extends BorderPane {
             if (!taskTitle.isEmpty() && !description.isEmpty() && assignee != null && dueDate != null && !pointsStr.isEmpty()) {
                 try {
                     int points = Integer.parseInt(pointsStr);
-                    Task newTask = new Task(
-                        dataManager.getNextTaskId(),
-                        taskTitle,
-                        description,
-                        points,
-                        Task.TaskStatus.ASSIGNED,
-                        Task.TaskType.HOME,
-                        assignee,
-                        currentUser.getUsername(), // Creator
-                        0,
-                        dueDate
-                    );
-                    dataManager.saveTask(newTask);
-                    titleField.clear();
-                    descriptionArea.clear();
-                    dueDatePicker.setValue(null);
-                    pointsField.clear();
-                    assigneeCombo.setValue(null);
+                    assignBtn.setDisable(true);
+                    // Id alma ve kayıt arka planda; form kayıt bitince temizlenir
+                    CompletableFuture<Void> saved = asyncData.supplyAsync(dataManager::getNextTaskId)
+                            .thenCompose(taskId -> asyncData.saveTaskAsync(new Task(
+                                taskId,
+                                taskTitle,
+                                description,
+                                points,
+                                Task.TaskStatus.ASSIGNED,
+                                Task.TaskType.HOME,
+                                assignee,
+                                currentUser.getUsername(), // Creator
+                                0,
+                                dueDate
+                            )));
+                    AsyncDataManager.onFxThread(saved, done -> {
+                        assignBtn.setDisable(false);
+                        clearSaveError(formCard);
+                        titleField.clear();
+                        descriptionArea.clear();
+                        dueDatePicker.setValue(null);
+                        pointsField.clear();
+                        assigneeCombo.setValue(null);
+                    }, error -> showSaveError(assignBtn, formCard, error));
                 } catch (NumberFormatException ex) {
                     // Show error
                 }
@@ -479,31 +549,49 @@ public class ParentDashboardView extends BorderPane {
         Button approveBtn = new Button("Approve");
         approveBtn.getStyleClass().add("parent-button");
         approveBtn.setOnAction(e -> {
-            wish.setStatus(Wish.WishStatus.APPROVED);
-            dataManager.saveWishes();
-            
-            // Wish onaylandığında cost'u toplam puandan düş
-            User kid = dataManager.getUserByUsername(wish.getOwner());
-            if (kid != null) {
-                int wishCost = wish.getCost();
-                kid.setCurrentPoints(Math.max(0, kid.getCurrentPoints() - wishCost));
-                dataManager.saveUser(kid);
-            }
-            
-            showWishes();
+            buttons.setDisable(true);
+            CompletableFuture<Boolean> approved = asyncData.runInTransactionAsync(tx -> {
+                Wish current = tx.getWish(wish.getId());
+                if (current == null || current.getStatus() != Wish.WishStatus.PENDING) {
+                    return false;
+                }
+                current.setStatus(Wish.WishStatus.APPROVED);
+                tx.saveWish(current);
+
+                // Wish onaylandığında cost'u toplam puandan düş
+                User kid = tx.getUser(current.getOwner());
+                if (kid != null) {
+                    int wishCost = current.getCost();
+                    kid.setCurrentPoints(Math.max(0, kid.getCurrentPoints() - wishCost));
+                    tx.saveUser(kid);
+                }
+                return true;
+            });
+            AsyncDataManager.onFxThread(approved, done -> showWishes(),
+                    error -> showSaveError(buttons, card, error));
         });
 
         Button rejectBtn = new Button("Reject");
         rejectBtn.getStyleClass().add("parent-reject-button");
         rejectBtn.setOnAction(e -> {
+            buttons.setDisable(true);
             // Wish'i sil ve puanları geri ver
-            User kid = dataManager.getUserByUsername(wish.getOwner());
-            if (kid != null) {
-                kid.setCurrentPoints(kid.getCurrentPoints() + wish.getCost());
-                dataManager.saveUser(kid);
-            }
-            dataManager.deleteWish(wish.getId());
-            showWishes();
+            CompletableFuture<Boolean> rejected = asyncData.runInTransactionAsync(tx -> {
+                Wish current = tx.getWish(wish.getId());
+                // Başka bir oturum onayladıysa ya da zaten reddettiyse puan tekrar iade edilmez
+                if (current == null || current.getStatus() != Wish.WishStatus.PENDING) {
+                    return false;
+                }
+                User kid = tx.getUser(current.getOwner());
+                if (kid != null) {
+                    kid.setCurrentPoints(kid.getCurrentPoints() + current.getCost());
+                    tx.saveUser(kid);
+                }
+                tx.deleteWish(current.getId());
+                return true;
+            });
+            AsyncDataManager.onFxThread(rejected, done -> showWishes(),
+                    error -> showSaveError(buttons, card, error));
         });
 
         buttons.getChildren().addAll(approveBtn, rejectBtn);
@@ -553,17 +641,25 @@ public class ParentDashboardView extends BorderPane {
             String reward = rewardField.getText().trim();
 
             if (!achievementTitle.isEmpty() && !description.isEmpty() && !reward.isEmpty()) {
-                Achievement achievement = new Achievement(
-                    dataManager.getNextAchievementId(),
-                    achievementTitle,
-                    description,
-                    reward,
-                    User.Role.PARENT
-                );
-                dataManager.saveAchievement(achievement);
-                titleField.clear();
-                descriptionField.clear();
-                rewardField.clear();
+                createBtn.setDisable(true);
+                CompletableFuture<Achievement> saved = asyncData.supplyAsync(() -> {
+                    Achievement achievement = new Achievement(
+                        dataManager.getNextAchievementId(),
+                        achievementTitle,
+                        description,
+                        reward,
+                        User.Role.PARENT
+                    );
+                    dataManager.saveAchievement(achievement);
+                    return achievement;
+                });
+                AsyncDataManager.onFxThread(saved, achievement -> {
+                    createBtn.setDisable(false);
+                    clearSaveError(formCard);
+                    titleField.clear();
+                    descriptionField.clear();
+                    rewardField.clear();
+                }, error -> showSaveError(createBtn, formCard, error));
             }
         });
 
@@ -616,23 +712,9 @@ public class ParentDashboardView extends BorderPane {
         title.getStyleClass().add("title-text");
         title.setFont(Font.font("Segoe UI", FontWeight.BOLD, 28));
 
-        VBox scheduleContainer = new VBox(16);
-        scheduleContainer.setAlignment(Pos.TOP_CENTER);
-        scheduleContainer.setPrefWidth(800);
-
-        List<Task> homeTasks = dataManager.getTasksByType(Task.TaskType.HOME);
-        for (Task task : homeTasks) {
-            if (task.getDueDate() != null) {
-                scheduleContainer.getChildren().add(createScheduleCard(task));
-            }
-        }
-
-        if (scheduleContainer.getChildren().isEmpty()) {
-            Label noSchedule = new Label("No scheduled tasks!");
-            noSchedule.setFont(Font.font("Segoe UI", 16));
-            noSchedule.setTextFill(Color.web("#666666"));
-            scheduleContainer.getChildren().add(noSchedule);
-        }
+        // Haftalık, tarihe göre sıralı; sadece gösterilen hafta okunur
+        SchedulePane scheduleContainer = new SchedulePane(dataManager.getScheduleForType(Task.TaskType.HOME),
+                "parent-button", this::createScheduleCard);
 
         contentArea.getChildren().addAll(title, scheduleContainer);
     }
@@ -655,20 +737,116 @@ public class ParentDashboardView extends BorderPane {
         return card;
     }
 
+    private void showTaskHistory() {
+        contentArea.getChildren().clear();
+
+        Label title = new Label("Task History");
+        title.getStyleClass().add("title-text");
+        title.setFont(Font.font("Segoe UI", FontWeight.BOLD, 28));
+
+        HBox filterRow = new HBox(16);
+        filterRow.setAlignment(Pos.CENTER);
+
+        String allKids = "All children";
+        ComboBox<String> kidCombo = new ComboBox<>();
+        kidCombo.getStyleClass().add("input-field");
+        kidCombo.setPrefWidth(360);
+        kidCombo.getItems().add(allKids);
+        for (User user : dataManager.getUsers()) {
+            if (user.getRole() == User.Role.KID) {
+                kidCombo.getItems().add(user.getUsername());
+            }
+        }
+        kidCombo.setValue(allKids);
+
+        // Varsayılan son bir ay; boş bırakılırsa tüm geçmiş (arşiv dahil) okunur
+        DatePicker fromPicker = new DatePicker(LocalDate.now().minusMonths(1));
+        fromPicker.getStyleClass().add("input-field");
+        fromPicker.setPrefWidth(360);
+        fromPicker.setPromptText("From (all history)");
+
+        filterRow.getChildren().addAll(kidCombo, fromPicker);
+
+        VBox historyContainer = new VBox(16);
+        historyContainer.setAlignment(Pos.TOP_CENTER);
+        historyContainer.setPrefWidth(800);
+        contentArea.getChildren().addAll(title, filterRow, historyContainer);
+
+        Runnable loadHistory = () -> {
+            String selected = kidCombo.getValue();
+            LocalDate from = fromPicker.getValue();
+            Label loading = new Label("Loading history...");
+            loading.setFont(Font.font("Segoe UI", 16));
+            loading.setTextFill(Color.web("#999999"));
+            historyContainer.getChildren().setAll(loading);
+            // Tamamlanan görevler ve arşiv arka planda okunur
+            String kid = allKids.equals(selected) ? null : selected;
+            AsyncDataManager.onFxThread(asyncData.getTaskHistoryAsync(kid, from, null), history -> {
+                // Bu sırada filtre değiştiyse ya da başka sekmeye geçildiyse eski listeyi gösterme
+                if (!contentArea.getChildren().contains(historyContainer)
+                        || !Objects.equals(selected, kidCombo.getValue())
+                        || !Objects.equals(from, fromPicker.getValue())) {
+                    return;
+                }
+                historyContainer.getChildren().clear();
+                // En yeni görev en üstte
+                for (int i = history.size() - 1; i >= 0; i--) {
+                    historyContainer.getChildren().add(createHistoryCard(history.get(i)));
+                }
+
+                if (historyContainer.getChildren().isEmpty()) {
+                    Label noHistory = new Label("No finished tasks in this period.");
+                    noHistory.setFont(Font.font("Segoe UI", 16));
+                    noHistory.setTextFill(Color.web("#666666"));
+                    historyContainer.getChildren().add(noHistory);
+                }
+            }, error -> {
+                Label failed = new Label("Could not load the history: " + error.getMessage());
+                failed.setFont(Font.font("Segoe UI", 14));
+                failed.setTextFill(Color.RED);
+                historyContainer.getChildren().setAll(failed);
+            });
+        };
+        kidCombo.setOnAction(e -> loadHistory.run());
+        fromPicker.setOnAction(e -> loadHistory.run());
+        loadHistory.run();
+    }
+
+    private VBox createHistoryCard(Task task) {
+        VBox card = new VBox(8);
+        card.getStyleClass().add("task-card");
+        card.setPadding(new Insets(24));
+        card.setPrefWidth(800);
+
+        Label title = new Label(task.getTitle());
+        title.setFont(Font.font("Segoe UI", FontWeight.BOLD, 18));
+        title.setTextFill(Color.web("#333333"));
+
+        Label assignee = new Label(task.getAssignee() + " - " + task.getPoints() + " points");
+        assignee.setFont(Font.font("Segoe UI", 14));
+        assignee.setTextFill(Color.web("#0056B3"));
+
+        String finished = task.getStatus() == Task.TaskStatus.FINALIZED
+                ? "Rated " + task.getRating() + "/5" : "Completed";
+        Label dateLabel = new Label("Due: " + task.getDueDate() + " - " + finished);
+        dateLabel.setFont(Font.font("Segoe UI", 14));
+        dateLabel.setTextFill(Color.web("#666666"));
+
+        card.getChildren().addAll(title, assignee, dateLabel);
+        return card;
+    }
+
     private void loadData() {
         // Calculate family progress (home tasks completion rate)
-        List<Task> homeTasks = dataManager.getTasksByType(Task.TaskType.HOME);
-        if (homeTasks.isEmpty()) {
+        TaskAggregates.Totals totals = dataManager.getTypeTotals(Task.TaskType.HOME);
+        if (totals.getTotal() == 0) {
             progressBar.setProgress(0);
             if (progressLabel != null) {
                 progressLabel.setText("0% Complete");
             }
             return;
         }
-        long completed = homeTasks.stream()
-                .filter(t -> t.getStatus() == Task.TaskStatus.COMPLETED || t.getStatus() == Task.TaskStatus.FINALIZED)
-                .count();
-        double progress = (double) completed / homeTasks.size();
+        double progress = totals.getCompletionRate();
         progress = Math.max(0, Math.min(1, progress)); // 0-1 arası sınırla
         progressBar.setProgress(progress);
         
@@ -683,10 +861,8 @@ public class ParentDashboardView extends BorderPane {
     }
 
     public void refresh() {
-        // Verileri yeniden yükle
-        dataManager.loadAllData();
+        // Veriler showApprovalCenter'ta arka planda yenilenir
         currentUser = dataManager.getUserByUsername(currentUser.getUsername());
-        loadData();
         showApprovalCenter();
     }
 }
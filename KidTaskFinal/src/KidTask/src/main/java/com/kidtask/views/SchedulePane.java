@@ -0,0 +1,94 @@
+package com.kidtask.views;
+
+import com.kidtask.models.Task;
+import com.kidtask.utils.TaskSchedule;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAdjusters;
+import java.util.function.Function;
+
+// Schedule list shared by the dashboards: one week at a time, sorted by due date.
+// Opens on the week of the next upcoming task; the arrows jump to the previous/next
+// week that has tasks, and "Show more" loads the rest of a busy week page by page.
+public class SchedulePane extends VBox {
+    private static final int PAGE_SIZE = 20;
+    private static final DateTimeFormatter WEEK_FORMAT = DateTimeFormatter.ofPattern("dd MMM yyyy");
+
+    private final TaskSchedule schedule;
+    private final Function<Task, Node> cardFactory;
+    private final Label weekLabel = new Label();
+    private final Button prevBtn = new Button("<");
+    private final Button nextBtn = new Button(">");
+    private final VBox cards = new VBox(16);
+    private final Button moreBtn = new Button("Show more");
+    private LocalDate weekStart;
+    private TaskSchedule.Cursor cursor;
+
+    public SchedulePane(TaskSchedule schedule, String buttonStyleClass, Function<Task, Node> cardFactory) {
+        super(16);
+        this.schedule = schedule;
+        this.cardFactory = cardFactory;
+        setAlignment(Pos.TOP_CENTER);
+        setPrefWidth(800);
+
+        if (schedule.isEmpty()) {
+            Label noSchedule = new Label("No scheduled tasks!");
+            noSchedule.setFont(Font.font("Segoe UI", 16));
+            noSchedule.setTextFill(Color.web("#666666"));
+            getChildren().add(noSchedule);
+            return;
+        }
+
+        weekLabel.setFont(Font.font("Segoe UI", FontWeight.BOLD, 16));
+        weekLabel.setTextFill(Color.web("#333333"));
+        prevBtn.getStyleClass().add(buttonStyleClass);
+        nextBtn.getStyleClass().add(buttonStyleClass);
+        moreBtn.getStyleClass().add(buttonStyleClass);
+        prevBtn.setOnAction(e -> showWeekOf(schedule.lastDueBefore(weekStart)));
+        nextBtn.setOnAction(e -> showWeekOf(schedule.firstDueOnOrAfter(weekStart.plusWeeks(1))));
+        moreBtn.setOnAction(e -> loadPage());
+
+        HBox weekNav = new HBox(16, prevBtn, weekLabel, nextBtn);
+        weekNav.setAlignment(Pos.CENTER);
+        cards.setAlignment(Pos.TOP_CENTER);
+        getChildren().addAll(weekNav, cards, moreBtn);
+
+        // Yaklaşan görev yoksa en son haftayı göster
+        LocalDate today = LocalDate.now();
+        LocalDate first = schedule.firstDueOnOrAfter(today);
+        showWeekOf(first != null ? first : schedule.lastDueBefore(today));
+    }
+
+    private void showWeekOf(LocalDate day) {
+        if (day == null) {
+            return;
+        }
+        weekStart = day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        weekLabel.setText(WEEK_FORMAT.format(weekStart) + " - " + WEEK_FORMAT.format(weekStart.plusDays(6)));
+        prevBtn.setDisable(schedule.lastDueBefore(weekStart) == null);
+        nextBtn.setDisable(schedule.firstDueOnOrAfter(weekStart.plusWeeks(1)) == null);
+        cards.getChildren().clear();
+        cursor = null;
+        loadPage();
+    }
+
+    private void loadPage() {
+        TaskSchedule.Page page = schedule.page(weekStart, weekStart.plusDays(6), cursor, PAGE_SIZE);
+        for (Task task : page.getTasks()) {
+            cards.getChildren().add(cardFactory.apply(task));
+        }
+        cursor = page.getNext();
+        moreBtn.setVisible(page.hasMore());
+        moreBtn.setManaged(page.hasMore());
+    }
+}
@@ -1,9 +1,13 @@
 package com.kidtask.views;
 
 import com.kidtask.models.*;
+import com.kidtask.utils.AsyncDataManager;
 import com.kidtask.utils.DataManager;
+import com.kidtask.utils.TaskAggregates;
+import com.kidtask.utils.TaskQuery;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
@@ -13,9 +17,11 @@ import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class TeacherDashboardView extends BorderPane {
     private DataManager dataManager;
+    private AsyncDataManager asyncData;
     private User currentUser;
     private VBox sidebar;
     private VBox contentArea;
@@ -28,8 +34,8 @@ public class TeacherDashboardView extends BorderPane {
     public TeacherDashboardView(User user) {
         this.currentUser = user;
         this.dataManager = DataManager.getInstance();
-        // Verileri yeniden yükle
-        dataManager.loadAllData();
+        this.asyncData = AsyncDataManager.getInstance();
+        // Veriler showRateTasks'ta arka planda yenilenir
         this.currentUser = dataManager.getUserByUsername(user.getUsername());
         setupView();
         loadData();
@@ -221,6 +227,11 @@ public class TeacherDashboardView extends BorderPane {
         List<User> kids = dataManager.getUsers().stream()
                 .filter(u -> u.getRole() == User.Role.KID)
                 .toList();
+        // Tüm sınıfa verilen ödev tek şablon olarak saklanır, her çocuğa sadece atama satırı
+        String allStudents = "All students (" + kids.size() + ")";
+        if (kids.size() > 1) {
+            assigneeCombo.getItems().add(allStudents);
+        }
         for (User kid : kids) {
             assigneeCombo.getItems().add(kid.getUsername());
         }
@@ -238,24 +249,48 @@ public class TeacherDashboardView extends BorderPane {
             if (!taskTitle.isEmpty() && !description.isEmpty() && assignee != null && dueDate != null && !pointsStr.isEmpty()) {
                 try {
                     int points = Integer.parseInt(pointsStr);
-                    Task newTask = new Task(
-                        dataManager.getNextTaskId(),
-                        taskTitle,
-                        description,
-                        points,
-                        Task.TaskStatus.ASSIGNED,
-                        Task.TaskType.SCHOOL,
-                        assignee,
-                        currentUser.getUsername(), // Creator
-                        0,
-                        dueDate
-                    );
-                    dataManager.saveTask(newTask);
-                    titleField.clear();
-                    descriptionArea.clear();
-                    dueDatePicker.setValue(null);
-                    pointsField.clear();
-                    assigneeCombo.setValue(null);
+                    String creator = currentUser.getUsername();
+                    assignBtn.setDisable(true);
+                    // Id alma ve kayıt arka planda; form kayıt bitince temizlenir
+                    CompletableFuture<?> saved;
+                    if (assignee.equals(allStudents)) {
+                        List<String> assignees = kids.stream().map(User::getUsername).toList();
+                        saved = asyncData.supplyAsync(() -> {
+                            TaskTemplate template = new TaskTemplate(
+                                dataManager.getNextTemplateId(),
+                                taskTitle,
+                                description,
+                                points,
+                                Task.TaskType.SCHOOL,
+                                creator, // Creator
+                                dueDate
+                            );
+                            return dataManager.assignTemplate(template, assignees);
+                        });
+                    } else {
+                        saved = asyncData.supplyAsync(dataManager::getNextTaskId)
+                                .thenCompose(taskId -> asyncData.saveTaskAsync(new Task(
+                                    taskId,
+                                    taskTitle,
+                                    description,
+                                    points,
+                                    Task.TaskStatus.ASSIGNED,
+                                    Task.TaskType.SCHOOL,
+                                    assignee,
+                                    creator, // Creator
+                                    0,
+                                    dueDate
+                                )));
+                    }
+                    AsyncDataManager.onFxThread(saved, done -> {
+                        assignBtn.setDisable(false);
+                        clearSaveError(formCard);
+                        titleField.clear();
+                        descriptionArea.clear();
+                        dueDatePicker.setValue(null);
+                        pointsField.clear();
+                        assigneeCombo.setValue(null);
+                    }, error -> showSaveError(assignBtn, formCard, error));
                 } catch (NumberFormatException ex) {
                     // Show error
                 }
@@ -276,28 +311,56 @@ public class TeacherDashboardView extends BorderPane {
         VBox tasksContainer = new VBox(16);
         tasksContainer.setAlignment(Pos.TOP_CENTER);
         tasksContainer.setPrefWidth(800);
+        tasksContainer.getChildren().add(createLoadingLabel());
+        contentArea.getChildren().addAll(title, tasksContainer);
 
         // Get PENDING_APPROVAL SCHOOL tasks - sadece Teacher'ın verdiği görevler
-        // Verileri yeniden yükle
-        dataManager.loadAllData();
-        List<Task> schoolTasks = dataManager.getTasksByType(Task.TaskType.SCHOOL);
-        List<Task> pendingTasks = schoolTasks.stream()
-                .filter(t -> t.getStatus() == Task.TaskStatus.PENDING_APPROVAL)
-                .filter(t -> t.getCreator() != null && t.getCreator().equals(currentUser.getUsername()))
-                .toList();
+        // Değişen veri dosyalarını arka planda oku, ekran bu sırada açık kalır
+        TaskQuery pendingQuery = TaskQuery.tasks()
+                .creator(currentUser.getUsername())
+                .status(Task.TaskStatus.PENDING_APPROVAL)
+                .type(Task.TaskType.SCHOOL);
+        AsyncDataManager.onFxThread(asyncData.refreshAsync()
+                .thenCompose(loaded -> asyncData.queryAsync(pendingQuery)), pendingTasks -> {
+            // Bu sırada başka bir sekmeye geçildiyse eski listeyi gösterme
+            if (!contentArea.getChildren().contains(tasksContainer)) {
+                return;
+            }
+            loadData();
+            tasksContainer.getChildren().clear();
+            for (Task task : pendingTasks) {
+                tasksContainer.getChildren().add(createRatingCard(task));
+            }
 
-        for (Task task : pendingTasks) {
-            tasksContainer.getChildren().add(createRatingCard(task));
-        }
+            if (tasksContainer.getChildren().isEmpty()) {
+                Label noTasks = new Label("No pending school tasks to rate!");
+                noTasks.setFont(Font.font("Segoe UI", 16));
+                noTasks.setTextFill(Color.web("#666666"));
+                tasksContainer.getChildren().add(noTasks);
+            }
+        });
+    }
 
-        if (tasksContainer.getChildren().isEmpty()) {
-            Label noTasks = new Label("No pending school tasks to rate!");
-            noTasks.setFont(Font.font("Segoe UI", 16));
-            noTasks.setTextFill(Color.web("#666666"));
-            tasksContainer.getChildren().add(noTasks);
-        }
+    private Label createLoadingLabel() {
+        Label loading = new Label("Loading tasks...");
+        loading.setFont(Font.font("Segoe UI", 16));
+        loading.setTextFill(Color.web("#999999"));
+        return loading;
+    }
 
-        contentArea.getChildren().addAll(title, tasksContainer);
+    // Kayıt başarısız olursa kontrolü tekrar aç ve kartın altında kırmızı hata yazısı göster
+    private void showSaveError(Node control, Pane card, Throwable error) {
+        control.setDisable(false);
+        clearSaveError(card);
+        Label errorLabel = new Label("Could not save, please try again: " + error.getMessage());
+        errorLabel.setId("save-error");
+        errorLabel.setFont(Font.font("Segoe UI", 12));
+        errorLabel.setTextFill(Color.RED);
+        card.getChildren().add(errorLabel);
+    }
+
+    private void clearSaveError(Pane card) {
+        card.getChildren().removeIf(node -> "save-error".equals(node.getId()));
     }
 
     private VBox createRatingCard(Task task) {
@@ -339,7 +402,11 @@ public class TeacherDashboardView extends BorderPane {
             } else {
                 starBtn.setStyle("-fx-text-fill: #CCCCCC; -fx-background-color: transparent; -fx-font-size: 24px;");
             }
-            starBtn.setOnAction(e -> rateTask(task, rating));
+            starBtn.setOnAction(e -> {
+                // Kayıt bitene kadar ikinci puanlamayı engelle
+                starsBox.setDisable(true);
+                rateTask(task, rating, starsBox, card);
+            });
             starsBox.getChildren().add(starBtn);
         }
 
@@ -350,32 +417,41 @@ public class TeacherDashboardView extends BorderPane {
         return card;
     }
 
-    private void rateTask(Task task, int rating) {
-        task.setRating(rating);
-        task.setStatus(Task.TaskStatus.FINALIZED);
-        dataManager.saveTask(task);
-
-        // Add points to user and update level (50 points = 1 level)
-        User user = dataManager.getUserByUsername(task.getAssignee());
-        if (user != null) {
-            // Puan ekle (rating'e göre: 1 yıldız = 10 puan, 5 yıldız = 50 puan)
-            int pointsEarned = rating * 10;
-            int newCurrentPoints = user.getCurrentPoints() + pointsEarned;
-            int newTotalExp = user.getTotalExperience() + pointsEarned;
-            
-            user.setCurrentPoints(newCurrentPoints);
-            user.setTotalExperience(newTotalExp);
-            
-            // Level hesaplama: 50 puan = 1 level (minimum level 1)
-            int newLevel = (newTotalExp / 50) + 1;
-            if (newLevel < 1) newLevel = 1;
-            user.setLevel(newLevel);
-            
-            dataManager.saveUser(user);
-        }
+    private void rateTask(Task task, int rating, Node starsBox, VBox card) {
+        // Puan ve görev tek seferde kaydedilir; zaten puanlanmış görev tekrar puan vermez
+        CompletableFuture<Boolean> rated = asyncData.runInTransactionAsync(tx -> {
+            Task current = tx.getTask(task.getId());
+            if (current == null || current.getStatus() != Task.TaskStatus.PENDING_APPROVAL) {
+                return false;
+            }
+            current.setRating(rating);
+            current.setStatus(Task.TaskStatus.FINALIZED);
+            tx.saveTask(current);
+
+            // Add points to user and update level (50 points = 1 level)
+            User user = tx.getUser(current.getAssignee());
+            if (user != null) {
+                // Puan ekle (rating'e göre: 1 yıldız = 10 puan, 5 yıldız = 50 puan)
+                int pointsEarned = rating * 10;
+                int newCurrentPoints = user.getCurrentPoints() + pointsEarned;
+                int newTotalExp = user.getTotalExperience() + pointsEarned;
+
+                user.setCurrentPoints(newCurrentPoints);
+                user.setTotalExperience(newTotalExp);
+
+                // Level hesaplama: 50 puan = 1 level (minimum level 1)
+                int newLevel = (newTotalExp / 50) + 1;
+                if (newLevel < 1) newLevel = 1;
+                user.setLevel(newLevel);
+
+                tx.saveUser(user);
+            }
+            return true;
+        });
 
-        showRateTasks();
-        loadData();
+        // showRateTasks ilerleme çubuğunu da günceller
+        AsyncDataManager.onFxThread(rated, done -> showRateTasks(),
+                error -> showSaveError(starsBox, card, error));
     }
 
     private void showAddAchievement() {
@@ -418,17 +494,25 @@ public class TeacherDashboardView extends BorderPane {
             String reward = rewardField.getText().trim();
 
             if (!achievementTitle.isEmpty() && !description.isEmpty() && !reward.isEmpty()) {
-                Achievement achievement = new Achievement(
-                    dataManager.getNextAchievementId(),
-                    achievementTitle,
-                    description,
-                    reward,
-                    User.Role.TEACHER
-                );
-                dataManager.saveAchievement(achievement);
-                titleField.clear();
-                descriptionField.clear();
-                rewardField.clear();
+                createBtn.setDisable(true);
+                CompletableFuture<Achievement> saved = asyncData.supplyAsync(() -> {
+                    Achievement achievement = new Achievement(
+                        dataManager.getNextAchievementId(),
+                        achievementTitle,
+                        description,
+                        reward,
+                        User.Role.TEACHER
+                    );
+                    dataManager.saveAchievement(achievement);
+                    return achievement;
+                });
+                AsyncDataManager.onFxThread(saved, achievement -> {
+                    createBtn.setDisable(false);
+                    clearSaveError(formCard);
+                    titleField.clear();
+                    descriptionField.clear();
+                    rewardField.clear();
+                }, error -> showSaveError(createBtn, formCard, error));
             }
         });
 
@@ -481,23 +565,9 @@ public class TeacherDashboardView extends BorderPane {
         title.getStyleClass().add("title-text");
         title.setFont(Font.font("Segoe UI", FontWeight.BOLD, 28));
 
-        VBox scheduleContainer = new VBox(16);
-        scheduleContainer.setAlignment(Pos.TOP_CENTER);
-        scheduleContainer.setPrefWidth(800);
-
-        List<Task> schoolTasks = dataManager.getTasksByType(Task.TaskType.SCHOOL);
-        for (Task task : schoolTasks) {
-            if (task.getDueDate() != null) {
-                scheduleContainer.getChildren().add(createScheduleCard(task));
-            }
-        }
-
-        if (scheduleContainer.getChildren().isEmpty()) {
-            Label noSchedule = new Label("No scheduled tasks!");
-            noSchedule.setFont(Font.font("Segoe UI", 16));
-            noSchedule.setTextFill(Color.web("#666666"));
-            scheduleContainer.getChildren().add(noSchedule);
-        }
+        // Haftalık, tarihe göre sıralı; sadece gösterilen hafta okunur
+        SchedulePane scheduleContainer = new SchedulePane(dataManager.getScheduleForType(Task.TaskType.SCHOOL),
+                "teacher-button", this::createScheduleCard);
 
         contentArea.getChildren().addAll(title, scheduleContainer);
     }
@@ -526,18 +596,15 @@ public class TeacherDashboardView extends BorderPane {
 
     private void loadData() {
         // Calculate class average (school tasks completion rate)
-        List<Task> schoolTasks = dataManager.getTasksByType(Task.TaskType.SCHOOL);
-        if (schoolTasks.isEmpty()) {
+        TaskAggregates.Totals totals = dataManager.getTypeTotals(Task.TaskType.SCHOOL);
+        if (totals.getTotal() == 0) {
             progressBar.setProgress(0);
             if (progressLabel != null) {
                 progressLabel.setText("0% Complete");
             }
             return;
         }
-        long completed = schoolTasks.stream()
-                .filter(t -> t.getStatus() == Task.TaskStatus.COMPLETED || t.getStatus() == Task.TaskStatus.FINALIZED)
-                .count();
-        double progress = (double) completed / schoolTasks.size();
+        double progress = totals.getCompletionRate();
         progress = Math.max(0, Math.min(1, progress)); // 0-1 arası sınırla
         progressBar.setProgress(progress);
         
@@ -552,10 +619,8 @@ public class TeacherDashboardView extends BorderPane {
     }
 
     public void refresh() {
-        // Verileri yeniden yükle
-        dataManager.loadAllData();
+        // Veriler showRateTasks'ta arka planda yenilenir
         currentUser = dataManager.getUserByUsername(currentUser.getUsername());
-        loadData();
         showRateTasks();
     }
 }